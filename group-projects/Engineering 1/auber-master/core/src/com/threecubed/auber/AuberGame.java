@@ -7,10 +7,12 @@ import com.threecubed.auber.screens.MenuScreen;
 
 public class AuberGame extends Game {
   public TextureAtlas atlas;
+  public EntityRegions entityRegions;
 
   @Override
   public void create() {
     atlas = new TextureAtlas("auber.atlas");
+    entityRegions = new EntityRegions(atlas);
     Gdx.graphics.setWindowedMode(1920, 1080);
     setScreen(new MenuScreen(this));
   }
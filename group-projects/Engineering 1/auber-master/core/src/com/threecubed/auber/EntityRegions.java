@@ -0,0 +1,48 @@
+package com.threecubed.auber;
+
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+
+
+/**
+ * The regions of the texture atlas that entities are drawn with. Looking a region up in the atlas
+ * searches it by name, so they are all looked up once when the game starts and every entity of a
+ * kind shares the same region.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class EntityRegions {
+  private static final String[] NPC_REGION_NAMES = {"alienA", "alienB", "alienC"};
+
+  public final AtlasRegion player;
+  /** The region infiltrators are drawn with once they have been exposed. */
+  public final AtlasRegion infiltrator;
+  public final AtlasRegion projectile;
+  /** The regions NPCs are drawn with, one is picked at random for each NPC. */
+  public final AtlasRegion[] npcs;
+
+  /**
+   * Look up the regions entities are drawn with.
+   *
+   * @param atlas The atlas to find the regions in
+   * @throws IllegalArgumentException Thrown if the atlas is missing any of the regions
+   * */
+  public EntityRegions(TextureAtlas atlas) {
+    player = findRegion(atlas, "player");
+    infiltrator = findRegion(atlas, "infiltrator");
+    projectile = findRegion(atlas, "projectile");
+    npcs = new AtlasRegion[NPC_REGION_NAMES.length];
+    for (int i = 0; i < npcs.length; i++) {
+      npcs[i] = findRegion(atlas, NPC_REGION_NAMES[i]);
+    }
+  }
+
+  private static AtlasRegion findRegion(TextureAtlas atlas, String name) {
+    AtlasRegion region = atlas.findRegion(name);
+    if (region == null) {
+      throw new IllegalArgumentException("The atlas has no region named " + name);
+    }
+    return region;
+  }
+}
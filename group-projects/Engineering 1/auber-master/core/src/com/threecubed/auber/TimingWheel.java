@@ -0,0 +1,251 @@
+package com.threecubed.auber;
+
+import java.util.Arrays;
+
+
+/**
+ * Runs actions after a delay measured in simulation ticks, so they pause whenever the game does
+ * and keep pace with it when frames run slow. The world advances it by one tick each frame.
+ *
+ * <p>Timers are kept in a hierarchical timing wheel: a ring of slots for each of the next few
+ * ticks, then coarser rings whose slots each cover a whole lap of the ring below. A timer goes in
+ * the finest ring that reaches its deadline and drops down a ring whenever the slot it is in comes
+ * round, so scheduling and cancelling are constant time and each tick only looks at the timers
+ * due or dropping down.
+ *
+ * <p>Timer records are kept in arrays indexed by a record number and reused once a timer is done.
+ * Each timer is identified by a handle made of its record number and that record's generation,
+ * like the handles of {@link com.threecubed.auber.entities.EntityStore}, so cancelling a timer
+ * that has already run does nothing.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class TimingWheel {
+  /** The handle of a timer that isn't scheduled. */
+  public static final long NO_TIMER = -1;
+
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS_PER_LEVEL = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS_PER_LEVEL - 1;
+  private static final int LEVELS = 4;
+  /** The longest delay that fits in the wheel, a little over 77 hours at 60 ticks a second. */
+  private static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1;
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int NONE = -1;
+
+  private final float ticksPerSecond;
+  private long currentTick = 0;
+
+  /** The first record in each slot, level by level, or {@link TimingWheel#NONE}. */
+  private final int[] slotHeads = new int[SLOTS_PER_LEVEL * LEVELS];
+
+  private Runnable[] actions = new Runnable[INITIAL_CAPACITY];
+  private long[] deadlines = new long[INITIAL_CAPACITY];
+  /** The ticks between runs of each repeating timer, or 0 for timers that run once. */
+  private int[] intervals = new int[INITIAL_CAPACITY];
+  /** The slot each record is in, or {@link TimingWheel#NONE} for records not in use. */
+  private int[] recordSlots = new int[INITIAL_CAPACITY];
+  private int[] generations = new int[INITIAL_CAPACITY];
+  /** The next record in the same slot, or the next free record for records not in use. */
+  private int[] nextRecords = new int[INITIAL_CAPACITY];
+  private int[] previousRecords = new int[INITIAL_CAPACITY];
+  private int recordCount = 0;
+  private int firstFreeRecord = NONE;
+
+  /**
+   * Create an empty wheel.
+   *
+   * @param ticksPerSecond How many times a second {@link TimingWheel#tick()} is called, used to
+   *                       turn delays in seconds into ticks
+   * */
+  public TimingWheel(float ticksPerSecond) {
+    if (ticksPerSecond <= 0) {
+      throw new IllegalArgumentException("Ticks per second must be positive");
+    }
+    this.ticksPerSecond = ticksPerSecond;
+    Arrays.fill(slotHeads, NONE);
+  }
+
+  /**
+   * Run an action once after a delay.
+   *
+   * @param action The action to run
+   * @param delay The delay in seconds. Delays shorter than a tick run on the next tick
+   * @return The handle of the timer, for cancelling it
+   * @throws IllegalArgumentException Thrown if the delay is too long for the wheel
+   * */
+  public long schedule(Runnable action, float delay) {
+    return schedule(action, toTicks(delay), 0);
+  }
+
+  /**
+   * Run an action after a delay and then repeatedly, until the timer is cancelled.
+   *
+   * @param action The action to run
+   * @param delay The delay before the first run in seconds
+   * @param interval The time between runs in seconds
+   * @return The handle of the timer, for cancelling it
+   * @throws IllegalArgumentException Thrown if the delay or interval is too long for the wheel
+   * */
+  public long scheduleRepeating(Runnable action, float delay, float interval) {
+    return schedule(action, toTicks(delay), toTicks(interval));
+  }
+
+  /**
+   * Stop a timer from running again.
+   *
+   * @param timer The handle of the timer
+   * @return Whether the timer was cancelled, false if it had already finished or been cancelled
+   * */
+  public boolean cancel(long timer) {
+    if (!isScheduled(timer)) {
+      return false;
+    }
+    int record = (int) timer;
+    unlink(record);
+    free(record);
+    return true;
+  }
+
+  /**
+   * Check whether a timer is still waiting to run.
+   *
+   * @param timer The handle of the timer
+   * @return Whether the timer will run again
+   * */
+  public boolean isScheduled(long timer) {
+    int record = (int) timer;
+    return timer != NO_TIMER && record >= 0 && record < recordCount
+        && recordSlots[record] != NONE && generations[record] == (int) (timer >>> 32);
+  }
+
+  /**
+   * Advance the wheel by one tick, running every timer that is due. Actions may schedule and
+   * cancel timers, including their own.
+   * */
+  public void tick() {
+    currentTick++;
+    // Drop timers down from the coarser rings whose slots have come round, coarsest first so a
+    // timer can fall more than one ring in a tick
+    for (int level = LEVELS - 1; level > 0; level--) {
+      if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+        int slot = level * SLOTS_PER_LEVEL + (int) ((currentTick >>> (SLOT_BITS * level))
+            & SLOT_MASK);
+        int record = slotHeads[slot];
+        slotHeads[slot] = NONE;
+        while (record != NONE) {
+          int next = nextRecords[record];
+          insert(record);
+          record = next;
+        }
+      }
+    }
+
+    // Nothing can be added to the current slot while it runs, the earliest a timer can be
+    // scheduled for is the next tick
+    int slot = (int) (currentTick & SLOT_MASK);
+    while (slotHeads[slot] != NONE) {
+      int record = slotHeads[slot];
+      unlink(record);
+      Runnable action = actions[record];
+      if (intervals[record] > 0) {
+        // Put the timer back before running it, so the action can cancel it
+        deadlines[record] += intervals[record];
+        insert(record);
+      } else {
+        free(record);
+      }
+      action.run();
+    }
+  }
+
+  /**
+   * Return the number of ticks the wheel has advanced by.
+   *
+   * @return The current tick
+   * */
+  public long getTick() {
+    return currentTick;
+  }
+
+  private int toTicks(float seconds) {
+    // Anything due sooner than the next tick runs on it
+    long ticks = Math.max(1, Math.round(seconds * ticksPerSecond));
+    if (ticks > MAX_DELAY) {
+      throw new IllegalArgumentException("A delay of " + seconds + " seconds is too long");
+    }
+    return (int) ticks;
+  }
+
+  private long schedule(Runnable action, int delay, int interval) {
+    int record;
+    if (firstFreeRecord != NONE) {
+      record = firstFreeRecord;
+      firstFreeRecord = nextRecords[record];
+    } else {
+      if (recordCount == actions.length) {
+        grow();
+      }
+      record = recordCount++;
+    }
+    actions[record] = action;
+    deadlines[record] = currentTick + delay;
+    intervals[record] = interval;
+    insert(record);
+    return ((long) generations[record] << 32) | record;
+  }
+
+  /**
+   * Add a record to the finest ring that reaches its deadline.
+   * */
+  private void insert(int record) {
+    long deadline = deadlines[record];
+    long delay = deadline - currentTick;
+    int level = 0;
+    while (level < LEVELS - 1 && delay >= 1L << (SLOT_BITS * (level + 1))) {
+      level++;
+    }
+    int slot = level * SLOTS_PER_LEVEL + (int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+    recordSlots[record] = slot;
+    previousRecords[record] = NONE;
+    nextRecords[record] = slotHeads[slot];
+    if (slotHeads[slot] != NONE) {
+      previousRecords[slotHeads[slot]] = record;
+    }
+    slotHeads[slot] = record;
+  }
+
+  private void unlink(int record) {
+    int previous = previousRecords[record];
+    int next = nextRecords[record];
+    if (previous != NONE) {
+      nextRecords[previous] = next;
+    } else {
+      slotHeads[recordSlots[record]] = next;
+    }
+    if (next != NONE) {
+      previousRecords[next] = previous;
+    }
+  }
+
+  private void free(int record) {
+    actions[record] = null;
+    recordSlots[record] = NONE;
+    generations[record]++;
+    nextRecords[record] = firstFreeRecord;
+    firstFreeRecord = record;
+  }
+
+  private void grow() {
+    int capacity = actions.length * 2;
+    actions = Arrays.copyOf(actions, capacity);
+    deadlines = Arrays.copyOf(deadlines, capacity);
+    intervals = Arrays.copyOf(intervals, capacity);
+    recordSlots = Arrays.copyOf(recordSlots, capacity);
+    generations = Arrays.copyOf(generations, capacity);
+    nextRecords = Arrays.copyOf(nextRecords, capacity);
+    previousRecords = Arrays.copyOf(previousRecords, capacity);
+  }
+}
@@ -1,5 +1,7 @@
 package com.threecubed.auber;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
@@ -12,11 +14,22 @@ import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
 import com.badlogic.gdx.maps.tiled.TiledMapTileSet;
 import com.badlogic.gdx.maps.tiled.TmxMapLoader;
 import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Pool;
+import com.threecubed.auber.entities.EntityGrid;
+import com.threecubed.auber.entities.EntityStore;
 import com.threecubed.auber.entities.GameEntity;
 import com.threecubed.auber.entities.Player;
+import com.threecubed.auber.entities.Projectile;
+import com.threecubed.auber.entities.TileCollider;
+import com.threecubed.auber.pathfinding.DistanceField;
 import com.threecubed.auber.pathfinding.NavigationMesh;
+import com.threecubed.auber.pathfinding.NextHopTable;
+import com.threecubed.auber.pathfinding.PathRequestService;
+import com.threecubed.auber.pathfinding.PointGrid;
 import com.threecubed.auber.screens.GameOverScreen;
 import com.threecubed.auber.screens.GameScreen;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -41,15 +54,26 @@ public class World {
   /** Number of infiltrators added, including defeated ones. */
   public int infiltratorsAddedCount = 0;
 
-  private List<GameEntity> entities = new ArrayList<>();
+  private final EntityStore entities = new EntityStore();
   public List<GameEntity> newEntities = new ArrayList<>();
   public List<GameEntity> oldEntities = new ArrayList<>();
+  /** An index of where every entity is, for finding those in an area or along a line. */
+  public final EntityGrid entityGrid;
+  /** Which tiles of the collision layer are solid, for entities to collide with. */
+  public final TileCollider tileCollider = new TileCollider(
+      (TiledMapTileLayer) map.getLayers().get("collision_layer"));
+  /** Projectiles ready to be fired, refilled as fired ones are removed from the world. */
+  public final Pool<Projectile> projectilePool;
+  /** The timers of every entity, advanced a tick each frame so they pause with the game. */
+  public final TimingWheel timers = new TimingWheel(TICKS_PER_SECOND);
+  private final Vector2 rayEnd = new Vector2();
 
   public OrthographicCamera camera = new OrthographicCamera();
 
   public static final TiledMap map = new TmxMapLoader().load("map.tmx");
   public static final TiledMapTileSet tileset = map.getTileSets().getTileSet(0);
   public TextureAtlas atlas;
+  public EntityRegions entityRegions;
 
   public OrthogonalTiledMapRenderer renderer = new OrthogonalTiledMapRenderer(map);
 
@@ -63,7 +87,13 @@ public class World {
   public final NavigationMesh navigationMesh = new NavigationMesh(
       (TiledMapTileLayer) map.getLayers().get("navigation_layer")
       );
+  public final PathRequestService pathRequests = new PathRequestService(navigationMesh,
+      PATHFINDING_THREADS, PATHFINDING_FRAME_BUDGET);
+  /** Walking distances from the player, shared by every NPC trying to get away from them. */
+  public final DistanceField playerDistances = new DistanceField(navigationMesh);
   public ArrayList<float[]> fleePoints = new ArrayList<>();
+  /** An index over {@link World#fleePoints} for finding those nearest to an NPC. */
+  public final PointGrid fleePointIndex;
 
   /** Coordinates for the bottom left and top right tiles of the brig. */
   public static final float[][] BRIG_BOUNDS = {{240f, 608f}, {352f, 640f}};
@@ -177,10 +207,27 @@ public class World {
   public static final float NPC_FLEE_MULTIPLIER = 1.2f;
   /** The shortest distance an NPC should move from its current position when fleeing. */
   public static final float NPC_MIN_FLEE_DISTANCE = 80f;
+  /** The number of nearest flee points a fleeing NPC picks between at random. */
+  public static final int NPC_FLEE_POINT_CHOICES = 2;
   /** The distance an NPC can here the teleporter ray shoot from. */
   public static final float NPC_EAR_STRENGTH = 80f;
   /** The number of NPCs in the game. */
   public static final int NPC_COUNT = 24;
+  /**
+   * How many simulation ticks make up a second. The world advances one tick each frame, and the
+   * rest of the simulation is already tuned to 60 frames a second.
+   * */
+  public static final int TICKS_PER_SECOND = 60;
+  /**
+   * The number of threads NPC paths are searched for on. With 0, paths are searched for on the
+   * rendering thread instead, a slice at a time in the A* search mode and a whole search per
+   * frame in the others.
+   * */
+  public static final int PATHFINDING_THREADS = 2;
+  /** The most cells searched per frame when paths are searched for on the rendering thread. */
+  public static final int PATHFINDING_FRAME_BUDGET = 1500;
+  /** The local directory the next-hop table for the map is cached in between launches. */
+  public static final String PATHFINDING_CACHE_DIRECTORY = ".cache";
 
   public static enum SystemStates {
     WORKING,
@@ -196,11 +243,24 @@ public class World {
   public World(AuberGame game) {
     this.game = game;
     atlas = game.atlas;
+    entityRegions = game.entityRegions;
 
     // Configure the camera
     camera.setToOrtho(false, 480, 270);
     camera.update();
 
+    TiledMapTileLayer navigationLayer = (TiledMapTileLayer) map.getLayers().get("navigation_layer");
+    entityGrid = new EntityGrid(navigationLayer.getWidth() * navigationLayer.getTileWidth(),
+        navigationLayer.getHeight() * navigationLayer.getTileHeight(),
+        navigationLayer.getTileWidth());
+
+    projectilePool = new Pool<Projectile>() {
+      @Override
+      protected Projectile newObject() {
+        return new Projectile(entityRegions.projectile);
+      }
+    };
+
     Player player = new Player(64f, 64f, this);
     queueEntityAdd(player);
     this.player = player;
@@ -222,7 +282,6 @@ public class World {
       }
     }
 
-    TiledMapTileLayer navigationLayer = (TiledMapTileLayer) map.getLayers().get("navigation_layer");
     for (int y = 0; y < navigationLayer.getHeight(); y++) {
       for (int x = 0; x < navigationLayer.getWidth(); x++) {
         Cell currentCell = navigationLayer.getCell(x, y);
@@ -236,6 +295,26 @@ public class World {
         }
       }
     }
+
+    fleePointIndex = new PointGrid(fleePoints, NPC_MIN_FLEE_DISTANCE, NPC_FLEE_POINT_CHOICES);
+
+    // Almost every path an NPC follows leads to a system or a flee point
+    for (RectangleMapObject system : systems) {
+      navigationMesh.addFlowField(system.getRectangle().getX(), system.getRectangle().getY());
+    }
+    for (float[] fleePoint : fleePoints) {
+      navigationMesh.addFlowField(fleePoint[0], fleePoint[1]);
+    }
+
+    // The table is only built on the first launch with a given map, later ones map the cache
+    FileHandle nextHopCache = Gdx.files.local(PATHFINDING_CACHE_DIRECTORY).child(
+        NextHopTable.getCacheFileName(Gdx.files.internal("map.tmx").readBytes()));
+    try {
+      navigationMesh.loadNextHopTable(nextHopCache.file());
+    } catch (IOException exception) {
+      // Paths will be searched for instead
+      Gdx.app.error("World", "Couldn't load the next-hop table", exception);
+    }
   }
 
   /**
@@ -254,15 +333,16 @@ public class World {
       TiledMapTileLayer layer = ((TiledMapTileLayer) map.getLayers().get(2));
       player.position.x = (layer.getWidth() * layer.getTileWidth()) / 2;
       player.position.y = (layer.getHeight() * layer.getTileHeight()) / 2;
-      player.sprite.setColor(1f, 1f, 1f, 0f);
+      player.visible = false;
     }
   }
 
   public void addEntity(GameEntity entity) {
     entities.add(entity);
+    entityGrid.add(entity);
   }
 
-  public List<GameEntity> getEntities() {
+  public EntityStore getEntities() {
     return entities;
   }
 
@@ -288,10 +368,48 @@ public class World {
    * Apply any queued entity removals/additions to the world.
    * */
   public void updateEntities() {
-    entities.addAll(newEntities);
-    entities.removeAll(oldEntities);
+    // Looped over by index so applying the queues doesn't create an iterator every frame
+    for (int i = 0; i < newEntities.size(); i++) {
+      GameEntity entity = newEntities.get(i);
+      entities.add(entity);
+      entityGrid.add(entity);
+    }
+    for (int i = 0; i < oldEntities.size(); i++) {
+      GameEntity entity = oldEntities.get(i);
+      // An entity queued more than once is only removed the first time
+      if (entities.remove(entity)) {
+        entityGrid.remove(entity);
+        if (entity instanceof Projectile) {
+          projectilePool.free((Projectile) entity);
+        }
+      }
+    }
     newEntities.clear();
     oldEntities.clear();
+
+    // Entities can also be moved between frames, such as by timers
+    for (int i = 0; i < entities.size(); i++) {
+      entityGrid.update(entities.getAt(i));
+    }
+  }
+
+  /**
+   * Follow a line through the world until it hits a wall or an entity. The line is traced through
+   * the walls first, then only the part of it before the first wall is searched for entities.
+   *
+   * @param start The start of the line
+   * @param end The end of the line
+   * @param ignored An entity the line passes through, such as the one it comes from, or null
+   * @param hitPoint The vector to set to the point the line stops at: where it hits an entity or
+   *                 wall, or its end if it hits neither
+   * @return The entity the line hits, or null if it reaches a wall or its end first
+   * */
+  public GameEntity castRay(Vector2 start, Vector2 end, GameEntity ignored, Vector2 hitPoint) {
+    if (tileCollider.castRay(start, end, rayEnd) == Float.MAX_VALUE) {
+      rayEnd.set(end);
+    }
+    hitPoint.set(rayEnd);
+    return entityGrid.findFirstAlongSegment(start, rayEnd, ignored, hitPoint);
   }
 
   /**
@@ -338,7 +456,7 @@ public class World {
           // initiated even though every enum state is covered
           return;
       }
-      collisionLayer.setCell(systemPosition[0], systemPosition[1], newSystem);
+      setCollisionCell(collisionLayer, systemPosition[0], systemPosition[1], newSystem);
 
       TiledMapTileLayer foregroundLayer = (TiledMapTileLayer) map.getLayers()
           .get("foreground_layer");
@@ -359,7 +477,7 @@ public class World {
           // See above
           return;
       }
-      collisionLayer.setCell(systemPosition[0], systemPosition[1], newSystem);
+      setCollisionCell(collisionLayer, systemPosition[0], systemPosition[1], newSystem);
     }
 
     if (newState == SystemStates.DESTROYED) {
@@ -367,11 +485,25 @@ public class World {
         if (system.getRectangle().getX() == x
             && system.getRectangle().getY() == y) {
           systems.remove(system);
+          navigationMesh.removeFlowField(x, y);
           break;
         }
       }
     }
   }
+  /**
+   * Set a cell of the collision layer, keeping {@link World#tileCollider} in step with it.
+   *
+   * @param collisionLayer The collision layer
+   * @param x The x coordinate of the cell
+   * @param y The y coordinate of the cell
+   * @param cell The new cell, or null to clear it
+   * */
+  private void setCollisionCell(TiledMapTileLayer collisionLayer, int x, int y, Cell cell) {
+    collisionLayer.setCell(x, y, cell);
+    tileCollider.setSolid(x, y, cell != null);
+  }
+
 
   /**
    * Return the state of a system, given the coordinates of the system object (not the tile).
@@ -420,6 +552,22 @@ public class World {
     return getSystemState(system.getRectangle().x, system.getRectangle().y);
   }
 
+  /**
+   * Move the source of {@link World#playerDistances} to wherever the player now is. The field is
+   * only recalculated once it is next queried after the player has moved onto a different tile.
+   * */
+  public void updatePlayerDistances() {
+    playerDistances.setSource(player.getCenterX(), player.getCenterY());
+  }
+
+  /**
+   * Stop any background work the world is doing. Should be called once the world is no longer
+   * being played.
+   * */
+  public void dispose() {
+    pathRequests.dispose();
+  }
+
   /**
    * Check to see if any of the end conditions have been met, if so update the screen.
    * */
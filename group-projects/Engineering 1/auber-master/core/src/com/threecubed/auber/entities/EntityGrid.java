@@ -0,0 +1,319 @@
+package com.threecubed.auber.entities;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+
+
+/**
+ * A spatial index over the entities in the game world. The world is split into square buckets
+ * and each entity is kept in the bucket holding its position, linked into a list through fields
+ * of the entity itself, so moving an entity between buckets never allocates. Queries only look
+ * at the buckets near the area they cover and write to arrays supplied by the caller.
+ *
+ * <p>The index doesn't notice entities moving by itself, {@link EntityGrid#update(GameEntity)}
+ * must be called after an entity's position changes.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class EntityGrid {
+  private final float bucketSize;
+  private final int bucketsWide;
+  private final int bucketsHigh;
+  /** The first entity in each bucket, the rest follow through {@link GameEntity#nextInBucket}. */
+  private final GameEntity[] buckets;
+  /**
+   * How far an entity's bounding rectangle can reach from its position, grown to fit the largest
+   * entity added. Rotating an entity can make its bounding rectangle as wide as its width and
+   * height together.
+   * */
+  private float reach = 0;
+  private int queryGeneration = 0;
+
+  /**
+   * Create an empty index covering an area of the world. Entities outside of the area are kept
+   * in the nearest bucket along its edge.
+   *
+   * @param width The width of the area in world units
+   * @param height The height of the area in world units
+   * @param bucketSize The width and height of a bucket in world units
+   * */
+  public EntityGrid(float width, float height, float bucketSize) {
+    if (bucketSize <= 0) {
+      throw new IllegalArgumentException("Bucket size must be positive");
+    }
+    this.bucketSize = bucketSize;
+    bucketsWide = Math.max((int) Math.ceil(width / bucketSize), 1);
+    bucketsHigh = Math.max((int) Math.ceil(height / bucketSize), 1);
+    buckets = new GameEntity[bucketsWide * bucketsHigh];
+  }
+
+  /**
+   * Add an entity to the index.
+   *
+   * @param entity The entity to add
+   * @throws IllegalArgumentException Thrown if the entity is already in an index
+   * */
+  public void add(GameEntity entity) {
+    if (entity.bucket != -1) {
+      throw new IllegalArgumentException("Entity is already in an index");
+    }
+    reach = Math.max(reach, entity.getWidth() + entity.getHeight());
+    link(entity, getBucket(entity.position.x, entity.position.y));
+  }
+
+  /**
+   * Remove an entity from the index, if it is in it.
+   *
+   * @param entity The entity to remove
+   * */
+  public void remove(GameEntity entity) {
+    if (entity.bucket != -1) {
+      unlink(entity);
+    }
+  }
+
+  /**
+   * Move an entity to the bucket matching its current position.
+   *
+   * @param entity The entity that may have moved
+   * */
+  public void update(GameEntity entity) {
+    if (entity.bucket == -1) {
+      return;
+    }
+    int bucket = getBucket(entity.position.x, entity.position.y);
+    if (bucket != entity.bucket) {
+      unlink(entity);
+      link(entity, bucket);
+    }
+  }
+
+  /**
+   * Find every entity whose bounding rectangle overlaps an area.
+   *
+   * @param area The area to test against
+   * @param results The array to write the entities found to, it is cleared first
+   * @return The number of entities found
+   * */
+  public int findOverlapping(Rectangle area, Array<GameEntity> results) {
+    results.clear();
+    int minBucketX = getBucketX(area.x - reach);
+    int maxBucketX = getBucketX(area.x + area.width + reach);
+    int minBucketY = getBucketY(area.y - reach);
+    int maxBucketY = getBucketY(area.y + area.height + reach);
+    for (int bucketY = minBucketY; bucketY <= maxBucketY; bucketY++) {
+      for (int bucketX = minBucketX; bucketX <= maxBucketX; bucketX++) {
+        for (GameEntity entity = buckets[bucketY * bucketsWide + bucketX]; entity != null;
+            entity = entity.nextInBucket) {
+          if (entity.getBoundingRectangle().overlaps(area)) {
+            results.add(entity);
+          }
+        }
+      }
+    }
+    return results.size;
+  }
+
+  /**
+   * Find every entity whose position is within a distance of a point.
+   *
+   * @param x The x coordinate of the point
+   * @param y The y coordinate of the point
+   * @param radius The distance from the point to search within
+   * @param results The array to write the entities found to, it is cleared first
+   * @return The number of entities found
+   * */
+  public int findWithinRadius(float x, float y, float radius, Array<GameEntity> results) {
+    results.clear();
+    float radiusSquared = radius * radius;
+    int minBucketX = getBucketX(x - radius);
+    int maxBucketX = getBucketX(x + radius);
+    int minBucketY = getBucketY(y - radius);
+    int maxBucketY = getBucketY(y + radius);
+    for (int bucketY = minBucketY; bucketY <= maxBucketY; bucketY++) {
+      for (int bucketX = minBucketX; bucketX <= maxBucketX; bucketX++) {
+        for (GameEntity entity = buckets[bucketY * bucketsWide + bucketX]; entity != null;
+            entity = entity.nextInBucket) {
+          if (entity.position.dst2(x, y) < radiusSquared) {
+            results.add(entity);
+          }
+        }
+      }
+    }
+    return results.size;
+  }
+
+  /**
+   * Find the first entity whose bounding rectangle is crossed by a line segment. The
+   * buckets along the segment are visited in order, and the search stops once no bucket left to
+   * visit could hold an entity crossed before the closest one found so far.
+   *
+   * @param start The start of the segment
+   * @param end The end of the segment
+   * @param ignored An entity to leave out of the search, such as the one the segment comes from,
+   *                or null
+   * @param hitPoint The vector to set to the point the segment first enters the entity found
+   * @return The first entity crossed by the segment, or null if it doesn't cross any
+   * */
+  public GameEntity findFirstAlongSegment(Vector2 start, Vector2 end, GameEntity ignored,
+      Vector2 hitPoint) {
+    nextQueryGeneration();
+    float deltaX = end.x - start.x;
+    float deltaY = end.y - start.y;
+    // Checking the buckets this far around each one visited finds every entity the segment
+    // enters within it, so once past the closest entry found nothing closer can be left
+    int ring = (int) Math.ceil(reach / bucketSize);
+
+    GameEntity closest = null;
+    float closestFraction = Float.MAX_VALUE;
+
+    // Step through the buckets the segment passes through, in the order it reaches them. These
+    // aren't limited to the grid, since entities near its edge can reach outside of it
+    int bucketX = (int) Math.floor(start.x / bucketSize);
+    int bucketY = (int) Math.floor(start.y / bucketSize);
+    int endBucketX = (int) Math.floor(end.x / bucketSize);
+    int endBucketY = (int) Math.floor(end.y / bucketSize);
+    int stepX = deltaX > 0 ? 1 : -1;
+    int stepY = deltaY > 0 ? 1 : -1;
+    float fractionPerBucketX = deltaX == 0 ? Float.MAX_VALUE : Math.abs(bucketSize / deltaX);
+    float fractionPerBucketY = deltaY == 0 ? Float.MAX_VALUE : Math.abs(bucketSize / deltaY);
+    float nextFractionX = deltaX == 0 ? Float.MAX_VALUE
+        : ((deltaX > 0 ? (bucketX + 1) * bucketSize : bucketX * bucketSize) - start.x) / deltaX;
+    float nextFractionY = deltaY == 0 ? Float.MAX_VALUE
+        : ((deltaY > 0 ? (bucketY + 1) * bucketSize : bucketY * bucketSize) - start.y) / deltaY;
+    float bucketFraction = 0;
+
+    while (true) {
+      if (bucketFraction > closestFraction) {
+        break;
+      }
+      for (int y = Math.max(bucketY - ring, 0); y <= Math.min(bucketY + ring, bucketsHigh - 1);
+          y++) {
+        for (int x = Math.max(bucketX - ring, 0); x <= Math.min(bucketX + ring, bucketsWide - 1);
+            x++) {
+          for (GameEntity entity = buckets[y * bucketsWide + x]; entity != null;
+              entity = entity.nextInBucket) {
+            if (entity == ignored || entity.queryGeneration == queryGeneration) {
+              continue;
+            }
+            entity.queryGeneration = queryGeneration;
+            float fraction = getEntryFraction(entity.getBoundingRectangle(), start.x,
+                start.y, deltaX, deltaY);
+            if (fraction < closestFraction) {
+              closestFraction = fraction;
+              closest = entity;
+            }
+          }
+        }
+      }
+      if (bucketX == endBucketX && bucketY == endBucketY) {
+        break;
+      }
+      if (nextFractionX < nextFractionY) {
+        bucketFraction = nextFractionX;
+        nextFractionX += fractionPerBucketX;
+        bucketX += stepX;
+      } else {
+        bucketFraction = nextFractionY;
+        nextFractionY += fractionPerBucketY;
+        bucketY += stepY;
+      }
+      if (bucketFraction > 1
+          || (stepX < 0 ? bucketX < -ring : bucketX >= bucketsWide + ring)
+          || (stepY < 0 ? bucketY < -ring : bucketY >= bucketsHigh + ring)) {
+        // Past the end of the segment, or heading away from the grid with none of it in reach
+        break;
+      }
+    }
+
+    if (closest != null) {
+      hitPoint.set(start.x + deltaX * closestFraction, start.y + deltaY * closestFraction);
+    }
+    return closest;
+  }
+
+  /**
+   * Work out how far along a segment it first enters a rectangle, by clipping the segment to the
+   * rectangle one axis at a time.
+   *
+   * @return The fraction of the segment's length at which it enters the rectangle, 0 if it
+   *         starts inside it, or {@link Float#MAX_VALUE} if it never does
+   * */
+  private static float getEntryFraction(Rectangle rectangle, float startX, float startY,
+      float deltaX, float deltaY) {
+    float entry = 0;
+    float exit = 1;
+    if (deltaX == 0) {
+      if (startX < rectangle.x || startX > rectangle.x + rectangle.width) {
+        return Float.MAX_VALUE;
+      }
+    } else {
+      float first = (rectangle.x - startX) / deltaX;
+      float second = (rectangle.x + rectangle.width - startX) / deltaX;
+      entry = Math.max(entry, Math.min(first, second));
+      exit = Math.min(exit, Math.max(first, second));
+    }
+    if (deltaY == 0) {
+      if (startY < rectangle.y || startY > rectangle.y + rectangle.height) {
+        return Float.MAX_VALUE;
+      }
+    } else {
+      float first = (rectangle.y - startY) / deltaY;
+      float second = (rectangle.y + rectangle.height - startY) / deltaY;
+      entry = Math.max(entry, Math.min(first, second));
+      exit = Math.min(exit, Math.max(first, second));
+    }
+    return entry <= exit ? entry : Float.MAX_VALUE;
+  }
+
+  private void link(GameEntity entity, int bucket) {
+    entity.bucket = bucket;
+    entity.previousInBucket = null;
+    entity.nextInBucket = buckets[bucket];
+    if (buckets[bucket] != null) {
+      buckets[bucket].previousInBucket = entity;
+    }
+    buckets[bucket] = entity;
+  }
+
+  private void unlink(GameEntity entity) {
+    if (entity.previousInBucket != null) {
+      entity.previousInBucket.nextInBucket = entity.nextInBucket;
+    } else {
+      buckets[entity.bucket] = entity.nextInBucket;
+    }
+    if (entity.nextInBucket != null) {
+      entity.nextInBucket.previousInBucket = entity.previousInBucket;
+    }
+    entity.nextInBucket = null;
+    entity.previousInBucket = null;
+    entity.bucket = -1;
+  }
+
+  private void nextQueryGeneration() {
+    queryGeneration++;
+    if (queryGeneration == Integer.MAX_VALUE) {
+      // Wrapped around, stale marks could now be mistaken for current ones
+      for (GameEntity head : buckets) {
+        for (GameEntity entity = head; entity != null; entity = entity.nextInBucket) {
+          entity.queryGeneration = 0;
+        }
+      }
+      queryGeneration = 1;
+    }
+  }
+
+  private int getBucket(float x, float y) {
+    return getBucketY(y) * bucketsWide + getBucketX(x);
+  }
+
+  private int getBucketX(float x) {
+    return Math.max(0, Math.min((int) Math.floor(x / bucketSize), bucketsWide - 1));
+  }
+
+  private int getBucketY(float y) {
+    return Math.max(0, Math.min((int) Math.floor(y / bucketSize), bucketsHigh - 1));
+  }
+}
@@ -0,0 +1,148 @@
+package com.threecubed.auber.entities;
+
+import com.badlogic.gdx.utils.IntArray;
+import java.util.Arrays;
+
+
+/**
+ * The entities in the game world, packed into the front of an array so updating them all is a
+ * single pass over it. An entity is removed by moving the last entity into its place, so removing
+ * never shifts the rest of the array or searches it, but the order of entities isn't kept.
+ *
+ * <p>Each entity in the store is given a handle: the index of a slot that tracks where in the
+ * array the entity is, and the generation of that slot. A slot's generation goes up whenever its
+ * entity is removed, so a handle kept after its entity is gone no longer matches and
+ * {@link EntityStore#get(long)} returns null for it instead of whichever entity took the slot.
+ *
+ * <p>Only references to the entities are packed. Positions, velocities and NPC states stay in
+ * the entities themselves rather than in parallel arrays indexed by slot. Movement, collision,
+ * rendering and the timers all read and write the entities' own
+ * {@link com.badlogic.gdx.math.Vector2} fields, so a copy that no pass reads would only cost time
+ * to keep up to date.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class EntityStore {
+  /** The handle of an entity that isn't in a store. */
+  public static final long NO_HANDLE = -1;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private GameEntity[] entities = new GameEntity[INITIAL_CAPACITY];
+  private int size = 0;
+
+  /** Where in the array the entity of each slot is, or -1 for slots that are free. */
+  private int[] slotIndices = new int[INITIAL_CAPACITY];
+  private int[] slotGenerations = new int[INITIAL_CAPACITY];
+  private int slotCount = 0;
+  private final IntArray freeSlots = new IntArray();
+
+  /**
+   * Add an entity to the end of the store.
+   *
+   * @param entity The entity to add
+   * @return The entity's handle, which is also available from {@link GameEntity#getHandle()}
+   * @throws IllegalArgumentException Thrown if the entity is already in a store
+   * */
+  public long add(GameEntity entity) {
+    if (entity.handle != NO_HANDLE) {
+      throw new IllegalArgumentException("Entity is already in a store");
+    }
+    int slot;
+    if (freeSlots.size > 0) {
+      slot = freeSlots.pop();
+    } else {
+      if (slotCount == slotIndices.length) {
+        slotIndices = Arrays.copyOf(slotIndices, slotCount * 2);
+        slotGenerations = Arrays.copyOf(slotGenerations, slotCount * 2);
+      }
+      slot = slotCount++;
+    }
+    if (size == entities.length) {
+      entities = Arrays.copyOf(entities, size * 2);
+    }
+    entities[size] = entity;
+    slotIndices[slot] = size;
+    size++;
+    entity.handle = ((long) slotGenerations[slot] << 32) | slot;
+    return entity.handle;
+  }
+
+  /**
+   * Remove an entity from the store, if it is in it. The last entity in the store takes its
+   * place.
+   *
+   * @param entity The entity to remove
+   * @return Whether the entity was removed
+   * */
+  public boolean remove(GameEntity entity) {
+    return get(entity.handle) == entity && remove(entity.handle);
+  }
+
+  /**
+   * Remove the entity with a given handle, if it is still in the store. The last entity in the
+   * store takes its place.
+   *
+   * @param handle The handle of the entity to remove
+   * @return Whether an entity was removed, false if the handle is stale
+   * */
+  public boolean remove(long handle) {
+    if (!contains(handle)) {
+      return false;
+    }
+    int slot = (int) handle;
+    int index = slotIndices[slot];
+    GameEntity removed = entities[index];
+    GameEntity last = entities[--size];
+    entities[index] = last;
+    slotIndices[(int) last.handle] = index;
+    entities[size] = null;
+
+    slotIndices[slot] = -1;
+    slotGenerations[slot]++;
+    freeSlots.add(slot);
+    removed.handle = NO_HANDLE;
+    return true;
+  }
+
+  /**
+   * Check whether the entity with a given handle is still in the store.
+   *
+   * @param handle The handle to check
+   * @return Whether the handle refers to an entity in the store
+   * */
+  public boolean contains(long handle) {
+    int slot = (int) handle;
+    return handle != NO_HANDLE && slot >= 0 && slot < slotCount && slotIndices[slot] != -1
+        && slotGenerations[slot] == (int) (handle >>> 32);
+  }
+
+  /**
+   * Return the entity with a given handle.
+   *
+   * @param handle The handle of the entity
+   * @return The entity, or null if it has been removed from the store
+   * */
+  public GameEntity get(long handle) {
+    return contains(handle) ? entities[slotIndices[(int) handle]] : null;
+  }
+
+  /**
+   * Return the entity at a position in the store. Positions change as entities are removed, so
+   * they should only be used to loop over the store and never kept.
+   *
+   * @param index The position of the entity, from 0 up to {@link EntityStore#size()}
+   * @return The entity at that position
+   * */
+  public GameEntity getAt(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+    }
+    return entities[index];
+  }
+
+  public int size() {
+    return size;
+  }
+}
@@ -2,15 +2,15 @@ package com.threecubed.auber.entities;
 
 import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.graphics.g2d.Batch;
-import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.MapLayer;
 import com.badlogic.gdx.maps.MapObject;
 import com.badlogic.gdx.maps.MapObjects;
 import com.badlogic.gdx.maps.objects.RectangleMapObject;
 import com.badlogic.gdx.maps.tiled.TiledMap;
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
 import com.badlogic.gdx.math.Intersector;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.threecubed.auber.World;
 
@@ -26,7 +26,16 @@ import com.threecubed.auber.World;
  * @since 1.0
  * */
 public abstract class GameEntity {
-  public Sprite sprite;
+  /** How far inside the edges of an entity its box for colliding with walls is. */
+  private static final float COLLISION_INSET = 2f;
+
+  /**
+   * The texture the entity is drawn with. Regions are shared between every entity that looks the
+   * same, see {@link com.threecubed.auber.EntityRegions}, so they shouldn't be changed.
+   * */
+  public TextureRegion region;
+  /** Whether the entity is drawn, it is still updated either way. */
+  public boolean visible = true;
 
   public float speed = 0.4f;
   public float maxSpeed = 2f;
@@ -36,40 +45,48 @@ public abstract class GameEntity {
   public Vector2 velocity;
   public float rotation = 0f;
 
-  private float[][] collisionOffsets;
+  private final Rectangle collisionBox = new Rectangle();
+  private final float width;
+  private final float height;
+  private final Rectangle boundingRectangle = new Rectangle();
+
+  /** The bucket of the {@link EntityGrid} the entity is in, or -1 if it isn't in one. */
+  int bucket = -1;
+  GameEntity previousInBucket;
+  GameEntity nextInBucket;
+  /** The last {@link EntityGrid} query to check the entity, so it is only checked once. */
+  int queryGeneration = 0;
+  /** The handle of the entity in its {@link EntityStore}. */
+  long handle = EntityStore.NO_HANDLE;
 
   /**
    * Initialise a game entity at a given x and y coordinates.
    *
    * @param x The x coordinate of the entity
    * @param y The y coordinate of the entity
-   * @param sprite The sprite the entity should use
+   * @param region The texture region the entity should be drawn with, which also sets its size
    * */
-  public GameEntity(float x, float y, Sprite sprite) {
-    this.sprite = sprite; 
-    sprite.setOriginCenter();
+  public GameEntity(float x, float y, TextureRegion region) {
+    this.region = region;
+    width = region.getRegionWidth();
+    height = region.getRegionHeight();
 
     position = new Vector2(x, y);
     velocity = new Vector2(0, 0);
-
-    collisionOffsets = new float[][] {
-        {2f, 2f},
-        {sprite.getWidth() - 2f, 2f},
-        {2f, sprite.getHeight() - 2f},
-        {sprite.getWidth() - 2f, sprite.getHeight() - 2f}
-      };
   }
 
   /**
-   * Render the entity at its current coordinates with its current rotation.
+   * Render the entity at its current coordinates with its current rotation, rotated about its
+   * center.
    *
-   * @param batch The batch to draw the sprite to
+   * @param batch The batch to draw the entity to
    * @param camera The world's camera
    * */
   public void render(Batch batch, Camera camera) {
-    sprite.setRotation(rotation);
-    sprite.setPosition(position.x, position.y);
-    sprite.draw(batch);
+    if (visible) {
+      batch.draw(region, position.x, position.y, width / 2, height / 2, width, height, 1f, 1f,
+          rotation);
+    }
   }
 
   /**
@@ -85,43 +102,13 @@ public abstract class GameEntity {
    * velocity.
    *
    * @param velocity The entity's current velocity
-   * @param map The tilemap to test for collisions on
+   * @param tileCollider The solid tiles to test for collisions with
    * */
-  public void move(Vector2 velocity, TiledMap map) {
-    TiledMapTileLayer collisionLayer = (TiledMapTileLayer) map.getLayers().get("collision_layer");
-
-    // Store the direction of the velocity. More efficient than calling function multiple times,
-    // also helps with the eventuality that the velocity sign might flip when avoiding collisions
-    float velocitySignX = Math.signum(velocity.x);
-    float velocitySignY = Math.signum(velocity.y);
-
-    for (float[] offset : collisionOffsets) {
-      Cell cell = collisionLayer.getCell(
-            (int) ((position.x + velocity.x + offset[0]) / collisionLayer.getTileWidth()),
-            (int) ((position.y + offset[1]) / collisionLayer.getTileHeight())
-      );
-
-      while (cell != null) {
-        velocity.x -= velocitySignX * 0.1f;
-
-        cell = collisionLayer.getCell(
-            (int) ((position.x + velocity.x + offset[0]) / collisionLayer.getTileWidth()),
-            (int) ((position.y + offset[1]) / collisionLayer.getTileHeight())
-        );
-      }
-      cell = collisionLayer.getCell(
-            (int) ((position.x + offset[0]) / collisionLayer.getTileWidth()),
-            (int) ((position.y + velocity.y + offset[1]) / collisionLayer.getTileHeight())
-      );
-      while (cell != null) {
-        velocity.y -= velocitySignY * 0.1f;
-
-        cell = collisionLayer.getCell(
-            (int) ((position.x + offset[0]) / collisionLayer.getTileWidth()),
-            (int) ((position.y + velocity.y + offset[1]) / collisionLayer.getTileHeight())
-        );
-      }
-    }
+  public void move(Vector2 velocity, TileCollider tileCollider) {
+    // Cut the velocity short wherever the collision box would run into a wall
+    collisionBox.set(position.x + COLLISION_INSET, position.y + COLLISION_INSET,
+        width - 2 * COLLISION_INSET, height - 2 * COLLISION_INSET);
+    tileCollider.sweep(collisionBox, velocity, velocity);
 
     position.add(velocity);
     velocity.scl(friction);
@@ -140,7 +127,7 @@ public abstract class GameEntity {
     for (MapObject object : objects) {
       if (object instanceof RectangleMapObject) {
         RectangleMapObject rectangularObject = (RectangleMapObject) object;
-        if (Intersector.overlaps(sprite.getBoundingRectangle(), rectangularObject.getRectangle())) {
+        if (Intersector.overlaps(getBoundingRectangle(), rectangularObject.getRectangle())) {
           return rectangularObject;
         }
       }
@@ -158,8 +145,8 @@ public abstract class GameEntity {
   public boolean entityOnScreen(World world) {
     float halfWidth = world.camera.viewportWidth / 2;
     float halfHeight = world.camera.viewportHeight / 2;
-    return (position.x + sprite.getWidth() > world.camera.position.x - halfWidth
-            && position.y + sprite.getHeight() > world.camera.position.y - halfHeight
+    return (position.x + width > world.camera.position.x - halfWidth
+            && position.y + height > world.camera.position.y - halfHeight
             && position.x < world.camera.position.x + halfWidth
             && position.y < world.camera.position.y + halfHeight);
   }
@@ -170,7 +157,7 @@ public abstract class GameEntity {
    * @return The y coordinate at the center of the entity
    * */
   public float getCenterX() {
-    return position.x + (sprite.getWidth() / 2);
+    return position.x + (width / 2);
   }
 
   /**
@@ -179,7 +166,7 @@ public abstract class GameEntity {
    * @return The y coordinate at the center of the entity
    * */
   public float getCenterY() {
-    return position.y + (sprite.getHeight() / 2);
+    return position.y + (height / 2);
   }
 
   /**
@@ -190,4 +177,39 @@ public abstract class GameEntity {
   public Vector2 getCenter() {
     return new Vector2(getCenterX(), getCenterY());
   }
+
+  /**
+   * Return the entity's handle in the world's {@link EntityStore}. Unlike a reference to the
+   * entity, a kept handle can be checked with {@link EntityStore#get(long)} to see whether the
+   * entity is still in the world.
+   *
+   * @return The entity's handle, or {@link EntityStore#NO_HANDLE} if it isn't in the world
+   * */
+  public long getHandle() {
+    return handle;
+  }
+
+  public float getWidth() {
+    return width;
+  }
+
+  public float getHeight() {
+    return height;
+  }
+
+  /**
+   * Return the smallest rectangle containing the entity as it is drawn, at its current position
+   * and rotation.
+   *
+   * @return The bounding rectangle of the entity. The same rectangle is reused by every call, so
+   *         it should be copied if it needs to be kept
+   * */
+  public Rectangle getBoundingRectangle() {
+    float cos = Math.abs(MathUtils.cosDeg(rotation));
+    float sin = Math.abs(MathUtils.sinDeg(rotation));
+    float boundingWidth = width * cos + height * sin;
+    float boundingHeight = width * sin + height * cos;
+    return boundingRectangle.set(getCenterX() - boundingWidth / 2,
+        getCenterY() - boundingHeight / 2, boundingWidth, boundingHeight);
+  }
 }
@@ -1,11 +1,10 @@
 package com.threecubed.auber.entities;
 
-import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.objects.RectangleMapObject;
-import com.badlogic.gdx.math.Circle;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Timer.Task;
+import com.threecubed.auber.TimingWheel;
 import com.threecubed.auber.Utils;
 import com.threecubed.auber.World;
 
@@ -19,8 +18,15 @@ import com.threecubed.auber.World;
  * @since 1.0
  * */
 public class Infiltrator extends Npc {
+  /** The ends of the line of fire, reused by every infiltrator as they shoot in turn. */
+  private static final Vector2 lineOfFireStart = new Vector2();
+  private static final Vector2 lineOfFireEnd = new Vector2();
+  private static final Vector2 lineOfFireHit = new Vector2();
+
   public boolean exposed = false;
-  Sprite unexposedSprite;
+  /** The timer firing at the player while exposed, stopped once the infiltrator no longer is. */
+  private long firingTimer = TimingWheel.NO_TIMER;
+  TextureRegion unexposedRegion;
 
   /**
    * Initialise an infiltrator at given coordinates.
@@ -32,7 +38,7 @@ public class Infiltrator extends Npc {
   public Infiltrator(float x, float y, World world) {
     super(x, y, world);
     navigateToRandomSystem(world);
-
+    unexposedRegion = region;
   }
 
   /**
@@ -43,7 +49,7 @@ public class Infiltrator extends Npc {
   public Infiltrator(World world) {
     super(world);
     navigateToRandomSystem(world);
-    unexposedSprite = new Sprite(sprite);
+    unexposedRegion = region;
   }
 
   @Override
@@ -51,7 +57,7 @@ public class Infiltrator extends Npc {
     super.update(world);
     if (exposed && !entityOnScreen(world)) {
       exposed = false;
-      sprite = unexposedSprite;
+      region = unexposedRegion;
     }
   }
 
@@ -85,16 +91,16 @@ public class Infiltrator extends Npc {
     if (!exposed) {
       exposed = true;
       fireProjectileAtPlayer(world);
-      sprite = world.atlas.createSprite("infiltrator");
+      region = world.entityRegions.infiltrator;
       state = States.FLEEING;
       navigateToFurthestPointFromPlayer(world);
-      npcTimer.scheduleTask(new Task() {
+      firingTimer = scheduleRepeatingTimer(world, new Runnable() {
         @Override
         public void run() {
           if (exposed) {
             fireProjectileAtPlayer(world);
           } else {
-            cancel();
+            world.timers.cancel(firingTimer);
           }
         }
       }, World.INFILTRATOR_FIRING_INTERVAL, World.INFILTRATOR_FIRING_INTERVAL);
@@ -118,7 +124,7 @@ public class Infiltrator extends Npc {
       world.updateSystemState(system.getRectangle().getX(), system.getRectangle().getY(),
           World.SystemStates.ATTACKED);
 
-      npcTimer.scheduleTask(new Task() {
+      scheduleTimer(world, new Runnable() {
         @Override
         public void run() {
           if (aiEnabled) {
@@ -149,19 +155,32 @@ public class Infiltrator extends Npc {
     if (world.demoMode) {
       return false;
     }
-    Circle infiltratorSight = new Circle(position, World.INFILTRATOR_SIGHT_RANGE);
-    if (infiltratorSight.contains(world.player.position)) {
-      return true;
-    }
-    return false;
+    return position.dst2(world.player.position)
+        <= World.INFILTRATOR_SIGHT_RANGE * World.INFILTRATOR_SIGHT_RANGE;
+  }
+
+  /**
+   * Check whether a projectile fired now would reach the player, rather than a wall or another
+   * entity in the way.
+   *
+   * @param world The game world
+   * @return Whether the player is the first thing along the line to them
+   * */
+  private boolean hasLineOfFire(World world) {
+    lineOfFireStart.set(getCenterX(), getCenterY());
+    lineOfFireEnd.set(world.player.getCenterX(), world.player.getCenterY());
+    return world.castRay(lineOfFireStart, lineOfFireEnd, this, lineOfFireHit) == world.player;
   }
 
   private void fireProjectileAtPlayer(World world) {
-    Vector2 projectileVelocity = new Vector2(world.player.position.x - position.x,
-                                             world.player.position.y - position.y);
-    projectileVelocity.setLength(World.INFILTRATOR_PROJECTILE_SPEED);
-    Projectile projectile = new Projectile(getCenterX(), getCenterY(), projectileVelocity, this,
-        Projectile.CollisionActions.randomAction(), world);
+    if (!hasLineOfFire(world)) {
+      // Hold fire rather than waste the shot
+      return;
+    }
+    Projectile projectile = world.projectilePool.obtain();
+    projectile.fire(getCenterX(), getCenterY(), world.player.position.x - position.x,
+        world.player.position.y - position.y, this, Projectile.CollisionActions.randomAction());
+    projectile.velocity.setLength(World.INFILTRATOR_PROJECTILE_SPEED);
     world.queueEntityAdd(projectile);
   } 
 }
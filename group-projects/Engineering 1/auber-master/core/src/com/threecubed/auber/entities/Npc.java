@@ -1,15 +1,18 @@
 package com.threecubed.auber.entities;
 
-import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.objects.RectangleMapObject;
-import com.badlogic.gdx.math.Circle;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Timer;
-import com.badlogic.gdx.utils.Timer.Task;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
 import com.threecubed.auber.Utils;
 import com.threecubed.auber.World;
 import com.threecubed.auber.pathfinding.NavigationMesh;
-import java.util.ArrayList;
+import com.threecubed.auber.pathfinding.NavigationMesh.SearchModes;
+import com.threecubed.auber.pathfinding.PathFinder;
+import com.threecubed.auber.pathfinding.PathRequestService;
+import com.threecubed.auber.pathfinding.PathRequestService.PathListener;
+import com.threecubed.auber.pathfinding.TilePath;
 import java.util.Random;
 
 
@@ -24,13 +27,59 @@ import java.util.Random;
  * @since 1.0
  * */
 public abstract class Npc extends GameEntity {
-  private ArrayList<Vector2> currentPath = new ArrayList<>();
-  private Vector2 targetDirection = new Vector2();
+  /** The path being followed, shared with any other NPCs given the same path. */
+  private TilePath currentPath;
+  /** The waypoint of the path being headed to, the destination once past the last one. */
+  private int pathCursor;
+  private final Vector2 pathDestination = new Vector2();
+  private final Vector2 targetCoordinates = new Vector2();
+  private final Vector2 currentDirection = new Vector2();
+  private final Vector2 targetDirection = new Vector2();
   private NavigationMesh navigationMesh;
 
-  protected float maxSpeed = 1.3f;
+  /** Whether a path has been requested that hasn't been delivered yet. */
+  private boolean awaitingPath = false;
+  private int requestedPathStart;
+  private int requestedPathDestination;
+  private final Vector2 requestedDestination = new Vector2();
+  /** The service the last path was requested from. */
+  private PathRequestService pathRequests;
+  private final int[] nearestFleePoints = new int[World.NPC_FLEE_POINT_CHOICES];
+  /** The NPC's own search when the mesh uses {@link SearchModes#INCREMENTAL} searches. */
+  private PathFinder incrementalSearch;
+  private final IntArray plannedCells = new IntArray();
+  private int plannedMeshVersion;
+  private final PathListener pathListener = new PathListener() {
+    @Override
+    public void pathFound(TilePath path) {
+      if (!awaitingPath || path.getStart() != requestedPathStart
+          || path.getDestination() != requestedPathDestination) {
+        return;
+      }
+      // The NPC has carried on moving while the path was searched for, so pick the path up from
+      // wherever the NPC is now rather than heading back to its start
+      int cell = navigationMesh.getCellIndexAt(position.x, position.y);
+      int waypoint = cell == -1 ? 0 : path.getWaypointFrom(cell);
+      if (waypoint == -1) {
+        // Wandered off the path, so ask for one from here instead
+        requestedPathStart = cell;
+        pathRequests.requestPath(requestedPathStart, requestedPathDestination, this);
+        return;
+      }
+      awaitingPath = false;
+      setPath(path, requestedDestination, waypoint);
+    }
 
-  private static String[] textureNames = {"alienA", "alienB", "alienC"};
+    @Override
+    public void pathNotFound(int start, int destination) {
+      if (awaitingPath && start == requestedPathStart && destination == requestedPathDestination) {
+        // Carry on with the current path, if there is one
+        awaitingPath = false;
+      }
+    }
+  };
+
+  protected float maxSpeed = 1.3f;
 
   protected States state = States.IDLE;
 
@@ -43,18 +92,19 @@ public abstract class Npc extends GameEntity {
   }
 
   public boolean aiEnabled = true;
-  protected Timer npcTimer = new Timer();
+  /** The handles of the timers this NPC has scheduled, some of which may have already run. */
+  private final LongArray timers = new LongArray();
 
   /**
    * Initialise an NPC with a given texture.
    *
    * @param x The x coordinate to initialise the NPC at
    * @param y The y coordinate to initialise the NPC at
-   * @param sprite The NPC sprite
+   * @param region The texture region to draw the NPC with
    * @param navigationMesh The navigation mesh.
    * */
-  public Npc(float x, float y, Sprite sprite, NavigationMesh navigationMesh) {
-    super(x, y, sprite);
+  public Npc(float x, float y, TextureRegion region, NavigationMesh navigationMesh) {
+    super(x, y, region);
     Random rng = new Random(); // TODO: Switch to use the world RNG
     maxSpeed *= Utils.randomFloatInRange(rng, World.NPC_SPEED_VARIANCE[0],
         World.NPC_SPEED_VARIANCE[1]);
@@ -62,7 +112,7 @@ public abstract class Npc extends GameEntity {
   }
 
   /**
-   * Initialise an NPC with a random NPC sprite.
+   * Initialise an NPC with a random NPC texture.
    *
    * @param x The x coordinate to initialise the NPC at
    * @param y The y coordinate to initialise the NPC at
@@ -70,9 +120,8 @@ public abstract class Npc extends GameEntity {
    * */
   public Npc(float x, float y, World world) {
     this(x, y,
-        world.atlas.createSprite(
-          textureNames[Utils.randomIntInRange(world.randomNumberGenerator, 0,
-            textureNames.length - 1)]),
+        world.entityRegions.npcs[Utils.randomIntInRange(world.randomNumberGenerator, 0,
+            world.entityRegions.npcs.length - 1)],
         world.navigationMesh);
   }
 
@@ -93,7 +142,19 @@ public abstract class Npc extends GameEntity {
    * */
   protected void stepTowardsTarget(World world) {
     if (aiEnabled) {
-      Vector2 targetCoordinates = currentPath.get(0);
+      if (incrementalSearch != null && hasPath()
+          && plannedMeshVersion != navigationMesh.getVersion()) {
+        // Part of the mesh has changed under the current path, repair it
+        planPath();
+      }
+      if (!hasPath()) {
+        // Wait for the requested path to arrive
+        if (!awaitingPath) {
+          state = States.REACHED_DESTINATION;
+        }
+        return;
+      }
+      Vector2 targetCoordinates = getTargetCoordinates();
       Vector2 currentDirection = getCurrentDirection();
 
       // Rotate the entity to face the direction its heading
@@ -120,11 +181,11 @@ public abstract class Npc extends GameEntity {
 
       if (!entityMoved) {
         // If the entity hasn't moved, it must have reached its target node.
-        // Remove the node and recalculate the current direction to head in.
-        currentPath.remove(0);
-        if (!currentPath.isEmpty()) {
-          targetDirection = getCurrentDirection();
-        } else {
+        // Move on to the next node and recalculate the current direction to head in.
+        pathCursor++;
+        if (hasPath()) {
+          targetDirection.set(getCurrentDirection());
+        } else if (!awaitingPath) {
           state = States.REACHED_DESTINATION;
         }
       }
@@ -132,13 +193,18 @@ public abstract class Npc extends GameEntity {
   }
 
   /**
-   * Navigate to the furthest point from the player.
+   * Navigate to the point that takes the longest to walk to from the player.
    *
    * @param world The game world
    * */
   public void navigateToFurthestPointFromPlayer(World world) {
-    Vector2 furthestPoint = navigationMesh.getFurthestPointFromEntity(world.player);
-    currentPath = navigationMesh.generateWorldPathToPoint(position, furthestPoint);
+    int furthestCell = world.playerDistances.getFurthestCell();
+    if (furthestCell == -1) {
+      // The player has never been anywhere with a cell to walk away to, so stay put
+      return;
+    }
+    updatePath(navigationMesh.getCellWorldX(furthestCell),
+        navigationMesh.getCellWorldY(furthestCell), world);
   }
 
   /**
@@ -166,18 +232,41 @@ public abstract class Npc extends GameEntity {
   }
 
   /**
-   * Update the {@link Npc#currentPath} to a given set of x and y coordinates.
+   * Request a new {@link Npc#currentPath} to a given set of x and y coordinates. The path is found
+   * in the background, so the NPC carries on along its current path until it arrives.
    *
    * @param x The x coordinate to navigate to
    * @param y The y coordinate to navigate to
    * @param world The game world
    * */
   public void updatePath(float x, float y, World world) {
-    if (!currentPath.isEmpty()) {
-      currentPath.clear();
+    requestedDestination.set(x, y);
+    requestedPathStart = navigationMesh.getCellIndexAt(position.x, position.y);
+    requestedPathDestination = navigationMesh.getCellIndexAt(x, y);
+    if (navigationMesh.getSearchMode() == SearchModes.INCREMENTAL) {
+      planPath();
+      return;
+    }
+    awaitingPath = true;
+    pathRequests = world.pathRequests;
+    world.pathRequests.requestPath(requestedPathStart, requestedPathDestination, pathListener);
+  }
+
+  /**
+   * Find a path to the requested destination straight away using the NPC's own incremental
+   * search, which only has to repair its previous search if the destination hasn't changed.
+   * */
+  private void planPath() {
+    if (incrementalSearch == null) {
+      incrementalSearch = navigationMesh.createSearch(SearchModes.INCREMENTAL);
+    }
+    awaitingPath = false;
+    plannedMeshVersion = navigationMesh.getVersion();
+    int start = navigationMesh.getCellIndexAt(position.x, position.y);
+    if (start != -1 && requestedPathDestination != -1
+        && incrementalSearch.findPath(start, requestedPathDestination, plannedCells)) {
+      setPath(new TilePath(start, plannedCells), requestedDestination, 0);
     }
-    currentPath = navigationMesh.generateWorldPathToPoint(position, new Vector2(x, y));
-    targetDirection = getCurrentDirection();
   }
 
   /**
@@ -215,17 +304,50 @@ public abstract class Npc extends GameEntity {
   /**
    * Return a {@link Vector2} representing the direction the NPC is currently heading in.
    *
-   * @return A {@link Vector2} representing the direction the NPC is currently heading in.
+   * @return A {@link Vector2} representing the direction the NPC is currently heading in. The
+   *         same vector is reused by every call, so it should be copied if it needs to be kept
    * */
   public Vector2 getCurrentDirection() {
-    return new Vector2(
-        Math.signum(currentPath.get(0).x - position.x),
-        Math.signum(currentPath.get(0).y - position.y)
-        );
+    Vector2 target = getTargetCoordinates();
+    return currentDirection.set(Math.signum(target.x - position.x),
+                                Math.signum(target.y - position.y));
+  }
+
+  /**
+   * Start following a new path.
+   *
+   * @param path The path to follow
+   * @param destination The point to head to once the end of the path is reached
+   * @param waypoint The waypoint of the path to head to first
+   * */
+  private void setPath(TilePath path, Vector2 destination, int waypoint) {
+    currentPath = path;
+    pathCursor = waypoint;
+    pathDestination.set(destination);
+    targetDirection.set(getCurrentDirection());
+  }
+
+  private boolean hasPath() {
+    return currentPath != null && pathCursor <= currentPath.getWaypointCount();
+  }
+
+  /**
+   * Return the coordinates of the point the NPC is currently heading to.
+   *
+   * @return The coordinates of the current waypoint, or of the destination once past them all.
+   *         The same vector is reused by every call
+   * */
+  private Vector2 getTargetCoordinates() {
+    if (pathCursor < currentPath.getWaypointCount()) {
+      int cell = currentPath.getWaypoint(pathCursor);
+      return targetCoordinates.set(navigationMesh.getCellWorldX(cell),
+                                   navigationMesh.getCellWorldY(cell));
+    }
+    return pathDestination;
   }
 
   protected void idleForGivenTime(final World world, float seconds) {
-    npcTimer.scheduleTask(new Task() {
+    scheduleTimer(world, new Runnable() {
       @Override
       public void run() {
         if (aiEnabled) {
@@ -246,43 +368,24 @@ public abstract class Npc extends GameEntity {
   public void navigateToNearestFleepoint(final World world) {
     state = States.FLEEING;
 
-    ArrayList<Float> distances = new ArrayList<>();
-    ArrayList<float[]> closestFleePoints = new ArrayList<>();
-
-    Circle minimumFleeRange = new Circle(position, World.NPC_MIN_FLEE_DISTANCE);
-
-    for (float[] fleePoint : world.fleePoints) {
-      float newDistance = NavigationMesh.getEuclidianDistance(fleePoint,
-                                                           new float[] {position.x, position.y});
-
-      if (!minimumFleeRange.contains(fleePoint[0], fleePoint[1])) {
-        if (distances.size() < 2) {
-          distances.add(newDistance);
-          closestFleePoints.add(fleePoint);
-          continue;
-        }
-        for (int i = 0; i < distances.size(); i++) {
-          float distance = distances.get(i);
-          if (newDistance < distance) {
-            distances.set(i, distance);
-            closestFleePoints.set(i, fleePoint);
-            break;
-          }
-        }
-      }
+    int fleePointCount = world.fleePointIndex.findNearest(position.x, position.y,
+        World.NPC_MIN_FLEE_DISTANCE, nearestFleePoints);
+    if (fleePointCount == 0) {
+      // Every flee point is too close, so settle for whichever is nearest
+      fleePointCount = world.fleePointIndex.findNearest(position.x, position.y, -1f,
+          nearestFleePoints);
+    }
+    if (fleePointCount == 0) {
+      return;
     }
-    float[] chosenFleePoint = closestFleePoints.get(Utils.randomIntInRange(
-      world.randomNumberGenerator, 0, closestFleePoints.size() - 1)
-    );
+    float[] chosenFleePoint = world.fleePointIndex.getPoint(nearestFleePoints[
+        Utils.randomIntInRange(world.randomNumberGenerator, 0, fleePointCount - 1)]);
 
-    currentPath = navigationMesh.generateWorldPathToPoint(
-        position,
-        new Vector2(chosenFleePoint[0], chosenFleePoint[1])
-        );
+    updatePath(chosenFleePoint[0], chosenFleePoint[1], world);
 
     // Fleeing takes priority over all tasks
-    npcTimer.clear();
-    npcTimer.scheduleTask(new Task() {
+    cancelTimers(world);
+    scheduleTimer(world, new Runnable() {
       @Override
       public void run() {
         if (aiEnabled) {
@@ -293,6 +396,56 @@ public abstract class Npc extends GameEntity {
     }, World.NPC_FLEE_TIME);
   }
 
+  /**
+   * Schedule a timer on the world's {@link com.threecubed.auber.TimingWheel} that is cancelled
+   * along with the NPC's other timers by {@link Npc#cancelTimers(World)}.
+   *
+   * @param world The game world
+   * @param action The action to run
+   * @param delay The delay in seconds
+   * @return The handle of the timer
+   * */
+  protected long scheduleTimer(World world, Runnable action, float delay) {
+    return keepTimer(world, world.timers.schedule(action, delay));
+  }
+
+  /**
+   * Schedule a repeating timer like {@link Npc#scheduleTimer(World, Runnable, float)}.
+   *
+   * @param world The game world
+   * @param action The action to run
+   * @param delay The delay before the first run in seconds
+   * @param interval The time between runs in seconds
+   * @return The handle of the timer
+   * */
+  protected long scheduleRepeatingTimer(World world, Runnable action, float delay,
+      float interval) {
+    return keepTimer(world, world.timers.scheduleRepeating(action, delay, interval));
+  }
+
+  /**
+   * Cancel every timer the NPC has scheduled that hasn't run yet.
+   *
+   * @param world The game world
+   * */
+  protected void cancelTimers(World world) {
+    for (int i = 0; i < timers.size; i++) {
+      world.timers.cancel(timers.get(i));
+    }
+    timers.clear();
+  }
+
+  private long keepTimer(World world, long timer) {
+    // Forget timers that have already finished, so the list stays as short as the NPC's plans
+    for (int i = timers.size - 1; i >= 0; i--) {
+      if (!world.timers.isScheduled(timers.get(i))) {
+        timers.removeIndex(i);
+      }
+    }
+    timers.add(timer);
+    return timer;
+  }
+
   public States getState() {
     return state;
   }
@@ -10,14 +10,10 @@ import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
 import com.badlogic.gdx.maps.MapObjects;
 import com.badlogic.gdx.maps.MapProperties;
 import com.badlogic.gdx.maps.objects.RectangleMapObject;
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Timer;
-import com.badlogic.gdx.utils.Timer.Task;
+import com.badlogic.gdx.utils.Array;
 import com.threecubed.auber.Utils;
 import com.threecubed.auber.World;
-import com.threecubed.auber.pathfinding.NavigationMesh;
 
 
 /**
@@ -29,7 +25,9 @@ import com.threecubed.auber.pathfinding.NavigationMesh;
  * @since 1.0
  * */
 public class Player extends GameEntity {
-  public Timer playerTimer = new Timer();
+  /** The furthest the ray can go, as a multiple of the distance to the mouse. */
+  private static final float RAY_RANGE = 20f;
+
   private Vector2 teleporterRayCoordinates = new Vector2();
 
   /** Health of Auber - varies between 1 and 0. */
@@ -41,8 +39,12 @@ public class Player extends GameEntity {
 
   private ShapeRenderer rayRenderer = new ShapeRenderer();
 
+  private final Vector2 rayStart = new Vector2();
+  private final Vector2 rayEnd = new Vector2();
+  private final Array<GameEntity> nearbyEntities = new Array<>();
+
   public Player(float x, float y, World world) {
-    super(x, y, world.atlas.createSprite("player"));
+    super(x, y, world.entityRegions.player);
   }
 
   /**
@@ -101,12 +103,11 @@ public class Player extends GameEntity {
 
           // Scare entities
           teleporterRayCoordinates = handleRayCollisions(world);
-          for (GameEntity entity : world.getEntities()) {
-            float entityDistance = NavigationMesh.getEuclidianDistance(
-                new float[] {teleporterRayCoordinates.x, teleporterRayCoordinates.y},
-                new float[] {entity.position.x, entity.position.y}
-                );
-            if (entityDistance < World.NPC_EAR_STRENGTH && entity instanceof Npc) {
+          world.entityGrid.findWithinRadius(teleporterRayCoordinates.x,
+              teleporterRayCoordinates.y, World.NPC_EAR_STRENGTH, nearbyEntities);
+          for (int i = 0; i < nearbyEntities.size; i++) {
+            GameEntity entity = nearbyEntities.get(i);
+            if (entity instanceof Npc) {
               if (entity instanceof Infiltrator) {
                 Infiltrator infiltrator = (Infiltrator) entity;
 
@@ -120,7 +121,7 @@ public class Player extends GameEntity {
             }
           }
 
-          playerTimer.scheduleTask(new Task() {
+          world.timers.schedule(new Runnable() {
             @Override
             public void run() {
               teleporterRayCoordinates.setZero();
@@ -172,7 +173,7 @@ public class Player extends GameEntity {
         velocity.set(-velocity.x, -velocity.y);
       }
 
-      move(velocity, World.map);  
+      move(velocity, world.tileCollider);  
     }
   }
 
@@ -210,42 +211,15 @@ public class Player extends GameEntity {
   private Vector2 handleRayCollisions(World world) {
     Vector2 output = new Vector2();
 
-    Vector2 targetCoordinates = new Vector2(Utils.getMouseCoordinates(world.camera));
-    float alpha = 0.1f;
-    boolean rayIntersected = false;
+    Vector2 targetCoordinates = Utils.getMouseCoordinates(world.camera);
     // Allow the ray to go 20x the distance between the mouse and player,
     // prevents game from hanging if ray escapes map
-    while (!rayIntersected && alpha < 20) {
-      output.x = getCenterX();
-      output.y = getCenterY();
-
-      output.lerp(targetCoordinates, alpha);
-
-      // Check for entity collisions
-      for (GameEntity entity : world.getEntities()) {
-        if (!(entity instanceof Player)) {
-          if (entity.sprite.getBoundingRectangle().contains(output)) {
-            rayIntersected = true;
-            if (entity instanceof Npc) {
-              Npc npc = (Npc) entity;
-              npc.handleTeleporterShot(world);
-            }
-            break;
-          }
-        }
-      }
-
-      // Check for tile collisions
-      TiledMapTileLayer collisionLayer = (TiledMapTileLayer) World.map.getLayers()
-          .get("collision_layer");
-      Cell targetCell = collisionLayer.getCell(
-          (int) output.x / collisionLayer.getTileWidth(),
-          (int) output.y / collisionLayer.getTileHeight()
-      );
-      if (targetCell != null) {
-        rayIntersected = true;
-      }
-      alpha += 0.1f;
+    rayStart.set(getCenterX(), getCenterY());
+    rayEnd.set(rayStart).lerp(targetCoordinates, RAY_RANGE);
+    GameEntity hitEntity = world.castRay(rayStart, rayEnd, this, output);
+    if (hitEntity instanceof Npc) {
+      Npc npc = (Npc) hitEntity;
+      npc.handleTeleporterShot(world);
     }
     return output;
   }
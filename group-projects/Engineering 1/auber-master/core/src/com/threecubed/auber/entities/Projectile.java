@@ -1,43 +1,75 @@
 package com.threecubed.auber.entities;
 
-import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
-import com.badlogic.gdx.math.Intersector;
-import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Timer.Task;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool.Poolable;
 import com.threecubed.auber.World;
 
 
-public class Projectile extends GameEntity {
+/**
+ * A shot fired by an {@link Infiltrator}. Projectiles are kept in {@link World#projectilePool}
+ * and handed back to it by {@link World#updateEntities()} once they are removed, so they are
+ * only created the first time that many are in flight at once.
+ * */
+public class Projectile extends GameEntity implements Poolable {
   CollisionActions collisionAction;
   GameEntity originEntity;
 
+  /** The entities a projectile overlaps, reused by every projectile as they update in turn. */
+  private static final Array<GameEntity> overlappingEntities = new Array<>();
+
   public static enum CollisionActions {
     CONFUSE,
     SLOW,
     BLIND;
 
+    /** Kept rather than calling values() for every shot, which copies the array. */
+    private static final CollisionActions[] ACTIONS = values();
+
     public static CollisionActions randomAction() {
       // Int rounds down so no need to sub 1 from length
-      return values()[(int) (Math.random() * values().length)];
+      return ACTIONS[(int) (Math.random() * ACTIONS.length)];
     }
   }
 
   /**
-   * Initialise a projectile.
+   * Initialise a projectile that hasn't been fired yet.
+   *
+   * @param region The texture region to draw the projectile with, shared by every projectile
+   * */
+  public Projectile(TextureRegion region) {
+    super(0f, 0f, region);
+  }
+
+  /**
+   * Set the projectile off from a point.
    *
-   * @param x The x coordinate to initialise at
-   * @param y The y coordinate to initialise at
-   * @param velocity A {@link Vector2} representing the velocity of the projectile
+   * @param x The x coordinate to fire from
+   * @param y The y coordinate to fire from
+   * @param velocityX The x component of the projectile's velocity
+   * @param velocityY The y component of the projectile's velocity
    * @param originEntity The entity that the projectile originated from
    * @param action The effect the projectile should have on the player
-   * @param world The game world
    * */
-  public Projectile(float x, float y, Vector2 velocity, GameEntity originEntity,
-      CollisionActions action, World world) {
-    super(x, y, world.atlas.createSprite("projectile"));
-    collisionAction = action;
+  public void fire(float x, float y, float velocityX, float velocityY, GameEntity originEntity,
+      CollisionActions action) {
+    position.set(x, y);
+    velocity.set(velocityX, velocityY);
     this.originEntity = originEntity;
-    this.velocity = velocity;
+    collisionAction = action;
+  }
+
+  /**
+   * Clear the projectile's state once it is back in the pool, so it doesn't keep the entity that
+   * fired it alive.
+   * */
+  @Override
+  public void reset() {
+    position.setZero();
+    velocity.setZero();
+    rotation = 0f;
+    originEntity = null;
+    collisionAction = null;
   }
 
   /**
@@ -48,24 +80,28 @@ public class Projectile extends GameEntity {
    * */
   public void update(World world) {
     position.add(velocity);
-    for (GameEntity entity : world.getEntities()) {
-      if (Intersector.overlaps(entity.sprite.getBoundingRectangle(),
-            sprite.getBoundingRectangle())
-          && entity != originEntity && entity != this) {
-        if (entity instanceof Player) {
-          handleCollisionWithPlayer(world);
-        } 
-        world.queueEntityRemove(this);
-        return;
+    world.entityGrid.findOverlapping(getBoundingRectangle(), overlappingEntities);
+    boolean hitEntity = false;
+    boolean hitPlayer = false;
+    for (int i = 0; i < overlappingEntities.size; i++) {
+      GameEntity entity = overlappingEntities.get(i);
+      if (entity != originEntity && entity != this) {
+        hitEntity = true;
+        hitPlayer |= entity instanceof Player;
       }
     }
+    if (hitEntity) {
+      // The player takes the hit if the projectile reaches them and something else at once
+      if (hitPlayer) {
+        handleCollisionWithPlayer(world);
+      }
+      world.queueEntityRemove(this);
+      return;
+    }
 
-    TiledMapTileLayer collisionLayer = (TiledMapTileLayer)
-        World.map.getLayers().get("collision_layer");
-
-    int[] cellCoordinates = world.navigationMesh.getTilemapCoordinates(getCenterX(), getCenterY());
-
-    if (collisionLayer.getCell(cellCoordinates[0], cellCoordinates[1]) != null) {
+    if (!world.tileCollider.contains(getCenterX(), getCenterY())
+        || world.tileCollider.isSolidAt(getCenterX(), getCenterY())) {
+      // Hit a wall or left the map
       world.queueEntityRemove(this);
     }
   }
@@ -89,7 +125,7 @@ public class Projectile extends GameEntity {
 
   private void confusePlayer(final World world) {
     world.player.confused = true;
-    world.player.playerTimer.scheduleTask(new Task() {
+    world.timers.schedule(new Runnable() {
       @Override
       public void run() {
         world.player.confused = false;
@@ -99,7 +135,7 @@ public class Projectile extends GameEntity {
 
   private void slowPlayer(final World world) {
     world.player.slowed = true;
-    world.player.playerTimer.scheduleTask(new Task() {
+    world.timers.schedule(new Runnable() {
       @Override
       public void run() {
         world.player.slowed = false;
@@ -109,7 +145,7 @@ public class Projectile extends GameEntity {
 
   private void blindPlayer(final World world) {
     world.player.blinded = true;
-    world.player.playerTimer.scheduleTask(new Task() {
+    world.timers.schedule(new Runnable() {
       @Override
       public void run() {
         world.player.blinded = false;
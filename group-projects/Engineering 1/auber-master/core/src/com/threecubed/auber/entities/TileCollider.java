@@ -0,0 +1,288 @@
+package com.threecubed.auber.entities;
+
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+
+
+/**
+ * Sweeps axis-aligned boxes through the solid tiles of a tile layer, where any tile with a cell
+ * is solid. Which tiles are solid is copied from the layer into a bitmap when the collider is
+ * created, so checking a tile is a single array read rather than a lookup of the layer and its
+ * cell. Changes to the layer must be copied over with
+ * {@link TileCollider#setSolid(int, int, boolean)}.
+ *
+ * <p>Each axis is swept on its own, x first, by checking only the columns or rows of
+ * tiles the leading edge of the box crosses. This finds the exact point of contact rather than
+ * stepping towards it, so the work depends on how many tiles the box crosses and not on how far
+ * it has to back off.
+ *
+ * <p>Lines are traced through the tiles the same way, visiting each tile a line passes through
+ * in order, see {@link TileCollider#castRay(Vector2, Vector2, Vector2)}.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class TileCollider {
+  /**
+   * How far a box stops short of a tile it runs into. Moving the box's position rather than its
+   * edges can round the edges into the tile otherwise, and an edge touching a tile above or to
+   * the right exactly counts as inside it.
+   * */
+  private static final float CONTACT_GAP = 0.001f;
+
+  private final int width;
+  private final int height;
+  private final float tileWidth;
+  private final float tileHeight;
+  /** One bit for each tile, set for solid tiles, in rows from the bottom of the layer up. */
+  private final long[] solidTiles;
+
+  /**
+   * Create a collider for the solid tiles of a layer.
+   *
+   * @param layer The layer whose tiles with a cell are solid
+   * */
+  public TileCollider(TiledMapTileLayer layer) {
+    width = layer.getWidth();
+    height = layer.getHeight();
+    tileWidth = layer.getTileWidth();
+    tileHeight = layer.getTileHeight();
+    solidTiles = new long[(width * height + 63) / 64];
+    for (int row = 0; row < height; row++) {
+      for (int column = 0; column < width; column++) {
+        setSolid(column, row, layer.getCell(column, row) != null);
+      }
+    }
+  }
+
+  /**
+   * Check whether a tile is solid. Tiles outside of the layer never are.
+   *
+   * @param column The column of the tile
+   * @param row The row of the tile
+   * @return Whether the tile is solid
+   * */
+  public boolean isSolid(int column, int row) {
+    if (column < 0 || column >= width || row < 0 || row >= height) {
+      return false;
+    }
+    int tile = row * width + column;
+    return (solidTiles[tile >>> 6] & (1L << tile)) != 0;
+  }
+
+  /**
+   * Check whether the tile containing a point is solid.
+   *
+   * @param x The x coordinate of the point in world units
+   * @param y The y coordinate of the point in world units
+   * @return Whether the tile is solid
+   * */
+  public boolean isSolidAt(float x, float y) {
+    return isSolid(getTile(x, tileWidth), getTile(y, tileHeight));
+  }
+
+  /**
+   * Check whether a point is over the layer at all.
+   *
+   * @param x The x coordinate of the point in world units
+   * @param y The y coordinate of the point in world units
+   * @return Whether the point is within the bounds of the layer
+   * */
+  public boolean contains(float x, float y) {
+    return x >= 0 && x < width * tileWidth && y >= 0 && y < height * tileHeight;
+  }
+
+  /**
+   * Mark a tile as solid or not, which should be done whenever the cell of the layer it was
+   * created from changes.
+   *
+   * @param column The column of the tile
+   * @param row The row of the tile
+   * @param solid Whether the tile is now solid
+   * @throws IllegalArgumentException Thrown if the tile is outside of the layer
+   * */
+  public void setSolid(int column, int row, boolean solid) {
+    if (column < 0 || column >= width || row < 0 || row >= height) {
+      throw new IllegalArgumentException("Tile " + column + ", " + row + " is outside the layer");
+    }
+    int tile = row * width + column;
+    if (solid) {
+      solidTiles[tile >>> 6] |= 1L << tile;
+    } else {
+      solidTiles[tile >>> 6] &= ~(1L << tile);
+    }
+  }
+
+  /**
+   * Move a box through the tiles, stopping against any solid tile it runs into along an axis and
+   * sliding along it on the other.
+   *
+   * @param box The box to move, it isn't changed
+   * @param velocity The movement to attempt
+   * @param movement The vector to set to the movement that can be made, it may be the same
+   *                 vector as the velocity
+   * @return The fraction of the velocity covered before the box first touches a tile, or 1 if it
+   *         doesn't touch one
+   * */
+  public float sweep(Rectangle box, Vector2 velocity, Vector2 movement) {
+    float velocityX = velocity.x;
+    float velocityY = velocity.y;
+    float movementX = sweepX(box.x, box.y, box.x + box.width, box.y + box.height,
+        velocityX);
+    // Sweep vertically from where the box ends up horizontally, so it slides along walls
+    float movementY = sweepY(box.x + movementX, box.y, box.x + box.width + movementX,
+        box.y + box.height, velocityY);
+    movement.set(movementX, movementY);
+
+    float contactTime = 1f;
+    if (movementX != velocityX) {
+      contactTime = Math.min(contactTime, movementX / velocityX);
+    }
+    if (movementY != velocityY) {
+      contactTime = Math.min(contactTime, movementY / velocityY);
+    }
+    return contactTime;
+  }
+
+  /**
+   * Work out how far a box can move horizontally before touching a tile. Tiles the box is already
+   * inside of don't stop it, so a box that ends up inside a wall can always leave it.
+   *
+   * @param minX The left edge of the box
+   * @param minY The bottom edge of the box
+   * @param maxX The right edge of the box
+   * @param maxY The top edge of the box
+   * @param distance How far to move the box, negative to move it left
+   * @return How far the box can move, between 0 and the distance
+   * */
+  public float sweepX(float minX, float minY, float maxX, float maxY, float distance) {
+    int minRow = getTile(minY, tileHeight);
+    int maxRow = getTile(maxY, tileHeight);
+    if (distance > 0) {
+      int lastColumn = getTile(maxX + distance, tileWidth);
+      for (int column = getTile(maxX, tileWidth) + 1; column <= lastColumn; column++) {
+        if (columnSolid(column, minRow, maxRow)) {
+          return Math.max(0f, Math.min(distance, column * tileWidth - CONTACT_GAP - maxX));
+        }
+      }
+    } else if (distance < 0) {
+      int lastColumn = getTile(minX + distance, tileWidth);
+      for (int column = getTile(minX, tileWidth) - 1; column >= lastColumn; column--) {
+        if (columnSolid(column, minRow, maxRow)) {
+          return Math.min(0f, Math.max(distance, (column + 1) * tileWidth + CONTACT_GAP - minX));
+        }
+      }
+    }
+    return distance;
+  }
+
+  /**
+   * Work out how far a box can move vertically before touching a tile, like
+   * {@link TileCollider#sweepX(float, float, float, float, float)}.
+   *
+   * @param minX The left edge of the box
+   * @param minY The bottom edge of the box
+   * @param maxX The right edge of the box
+   * @param maxY The top edge of the box
+   * @param distance How far to move the box, negative to move it down
+   * @return How far the box can move, between 0 and the distance
+   * */
+  public float sweepY(float minX, float minY, float maxX, float maxY, float distance) {
+    int minColumn = getTile(minX, tileWidth);
+    int maxColumn = getTile(maxX, tileWidth);
+    if (distance > 0) {
+      int lastRow = getTile(maxY + distance, tileHeight);
+      for (int row = getTile(maxY, tileHeight) + 1; row <= lastRow; row++) {
+        if (rowSolid(row, minColumn, maxColumn)) {
+          return Math.max(0f, Math.min(distance, row * tileHeight - CONTACT_GAP - maxY));
+        }
+      }
+    } else if (distance < 0) {
+      int lastRow = getTile(minY + distance, tileHeight);
+      for (int row = getTile(minY, tileHeight) - 1; row >= lastRow; row--) {
+        if (rowSolid(row, minColumn, maxColumn)) {
+          return Math.min(0f, Math.max(distance, (row + 1) * tileHeight + CONTACT_GAP - minY));
+        }
+      }
+    }
+    return distance;
+  }
+
+  /**
+   * Find where a line segment first enters a solid tile. The tiles the segment passes through
+   * are visited in order, stepping to whichever tile border the segment crosses next, so every
+   * tile it touches is checked once and no others are.
+   *
+   * @param start The start of the segment
+   * @param end The end of the segment
+   * @param hitPoint The vector to set to the point the segment enters the first solid tile
+   * @return The fraction of the segment's length at which it enters a solid tile, 0 if it
+   *         starts inside one, or {@link Float#MAX_VALUE} if it never does
+   * */
+  public float castRay(Vector2 start, Vector2 end, Vector2 hitPoint) {
+    float deltaX = end.x - start.x;
+    float deltaY = end.y - start.y;
+
+    int column = getTile(start.x, tileWidth);
+    int row = getTile(start.y, tileHeight);
+    int endColumn = getTile(end.x, tileWidth);
+    int endRow = getTile(end.y, tileHeight);
+    int stepX = deltaX > 0 ? 1 : -1;
+    int stepY = deltaY > 0 ? 1 : -1;
+    float fractionPerColumn = deltaX == 0 ? Float.MAX_VALUE : Math.abs(tileWidth / deltaX);
+    float fractionPerRow = deltaY == 0 ? Float.MAX_VALUE : Math.abs(tileHeight / deltaY);
+    float nextColumnFraction = deltaX == 0 ? Float.MAX_VALUE
+        : ((deltaX > 0 ? column + 1 : column) * tileWidth - start.x) / deltaX;
+    float nextRowFraction = deltaY == 0 ? Float.MAX_VALUE
+        : ((deltaY > 0 ? row + 1 : row) * tileHeight - start.y) / deltaY;
+    float fraction = 0;
+
+    while (true) {
+      if (isSolid(column, row)) {
+        hitPoint.set(start.x + deltaX * fraction, start.y + deltaY * fraction);
+        return fraction;
+      }
+      if (column == endColumn && row == endRow) {
+        return Float.MAX_VALUE;
+      }
+      if (nextColumnFraction < nextRowFraction) {
+        fraction = nextColumnFraction;
+        nextColumnFraction += fractionPerColumn;
+        column += stepX;
+      } else {
+        fraction = nextRowFraction;
+        nextRowFraction += fractionPerRow;
+        row += stepY;
+      }
+      if (fraction > 1
+          || (stepX < 0 ? column < 0 : column >= width)
+          || (stepY < 0 ? row < 0 : row >= height)) {
+        // Past the end of the segment, or off the edge of the layer where no tile is solid
+        return Float.MAX_VALUE;
+      }
+    }
+  }
+
+  private boolean columnSolid(int column, int minRow, int maxRow) {
+    for (int row = minRow; row <= maxRow; row++) {
+      if (isSolid(column, row)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean rowSolid(int row, int minColumn, int maxColumn) {
+    for (int column = minColumn; column <= maxColumn; column++) {
+      if (isSolid(column, row)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int getTile(float coordinate, float tileSize) {
+    return (int) Math.floor(coordinate / tileSize);
+  }
+}
@@ -0,0 +1,113 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.utils.IntArray;
+
+
+/**
+ * A plain A* search over a {@link NavigationMesh} that works entirely on packed cell indices
+ * and expands every neighbour of each cell it visits.
+ *
+ * <p>The search can also be run a slice at a time: after
+ * {@link AStarSearch#startSearch(int, int)}, each call to
+ * {@link AStarSearch#continueSearch(int, IntArray)} expands a limited number of cells and the
+ * open set is kept until the next call, so a long search can be spread over several frames.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class AStarSearch extends TileSearch {
+  private int destination = -1;
+  private SearchStates state = SearchStates.NOT_FOUND;
+
+  /** The states a search run a slice at a time can be in. */
+  public static enum SearchStates {
+    /** The search has cells left to expand. */
+    SEARCHING,
+    /** The search has finished and found a path. */
+    FOUND,
+    /** The search has finished without finding a path. */
+    NOT_FOUND
+  }
+
+  public AStarSearch(NavigationMesh mesh) {
+    super(mesh);
+  }
+
+  @Override
+  public boolean findPath(int start, int destination, IntArray path) {
+    startSearch(start, destination);
+    return continueSearch(Integer.MAX_VALUE, path) == SearchStates.FOUND;
+  }
+
+  /**
+   * Set up a new search, abandoning any search already in progress. No cells are expanded until
+   * {@link AStarSearch#continueSearch(int, IntArray)} is called.
+   *
+   * @param start The index of the cell to start from
+   * @param destination The index of the cell to find a path to
+   * */
+  public void startSearch(int start, int destination) {
+    expandedNodes = 0;
+    this.destination = destination;
+    nextGeneration();
+    state = SearchStates.SEARCHING;
+    openStart(start, estimateCost(mesh.getCellX(start), mesh.getCellY(start),
+        mesh.getCellX(destination), mesh.getCellY(destination)));
+  }
+
+  /**
+   * Expand cells of the search in progress until it finishes or a number of cells have been
+   * expanded. {@link TileSearch#getExpandedNodes()} counts the cells expanded since the search
+   * was started.
+   *
+   * @param maxExpansions The most cells to expand during this call
+   * @param path The array to write the path to once it is found, in the same format as
+   *             {@link PathFinder#findPath(int, int, IntArray)}
+   *
+   * @return The state of the search after this call
+   * */
+  public SearchStates continueSearch(int maxExpansions, IntArray path) {
+    if (state != SearchStates.SEARCHING) {
+      return state;
+    }
+    int destinationX = mesh.getCellX(destination);
+    int destinationY = mesh.getCellY(destination);
+    int expansions = 0;
+
+    while (!openNodes.isEmpty()) {
+      int current = openNodes.poll();
+      if (current == destination) {
+        path.clear();
+        tracePath(destination, path);
+        state = SearchStates.FOUND;
+        return state;
+      }
+      close(current);
+
+      int currentX = mesh.getCellX(current);
+      int currentY = mesh.getCellY(current);
+      int successors = mesh.getSuccessorMask(currentX, currentY);
+      int successorCost = pathCosts[current] + 1;
+
+      for (int direction = 0; successors != 0; direction++, successors >>>= 1) {
+        if ((successors & 1) == 0) {
+          continue;
+        }
+        int successorX = currentX + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction];
+        int successorY = currentY + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction];
+        relax(mesh.getCellIndex(successorX, successorY), current, successorCost,
+            estimateCost(successorX, successorY, destinationX, destinationY));
+      }
+      if (++expansions >= maxExpansions) {
+        return state;
+      }
+    }
+    path.clear();
+    state = SearchStates.NOT_FOUND;
+    return state;
+  }
+
+  public SearchStates getState() {
+    return state;
+  }
+}
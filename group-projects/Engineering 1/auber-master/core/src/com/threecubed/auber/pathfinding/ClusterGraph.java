@@ -0,0 +1,295 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import java.util.Arrays;
+
+
+/**
+ * The abstract graph used by {@link HierarchicalSearch}. The mesh is split into square clusters
+ * and wherever two neighbouring clusters share a run of free cells along their border, an
+ * entrance is made of one or two pairs of cells facing each other across it. Each of those cells
+ * is a node of the graph, connected to the cell facing it and to every other node in its cluster
+ * that it can reach without leaving the cluster, weighted by the length of the route between them.
+ *
+ * <p>The graph only depends on the mesh, so one is shared by every search over a mesh. It is
+ * rebuilt the next time it is used after the mesh changes.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class ClusterGraph {
+  /** The width and height of a cluster in cells when no size is given. */
+  public static final int DEFAULT_CLUSTER_SIZE = 10;
+  /** Entrances at least this wide get a transition at each end rather than one in the middle. */
+  private static final int WIDE_ENTRANCE_LENGTH = 6;
+
+  private final NavigationMesh mesh;
+  private final int clusterSize;
+  private final int clustersWide;
+  private final int clustersHigh;
+
+  private final IntIntMap nodeIndices = new IntIntMap();
+  private int[] nodeCells = new int[0];
+  private int[][] clusterNodes;
+  private int[][] edgeTargets;
+  private int[][] edgeCosts;
+  private volatile boolean outdated = true;
+
+  /**
+   * Create the graph for a mesh. It is built the first time it is used.
+   *
+   * @param mesh The mesh to build the graph over
+   * @param clusterSize The width and height of a cluster in cells
+   * */
+  public ClusterGraph(NavigationMesh mesh, int clusterSize) {
+    this.mesh = mesh;
+    this.clusterSize = clusterSize;
+    clustersWide = (mesh.getWidth() + clusterSize - 1) / clusterSize;
+    clustersHigh = (mesh.getHeight() + clusterSize - 1) / clusterSize;
+  }
+
+  public int getClusterSize() {
+    return clusterSize;
+  }
+
+  /**
+   * Return the cluster a cell belongs to.
+   *
+   * @param cell The index of the cell
+   * @return The index of the cluster containing the cell
+   * */
+  public int getCluster(int cell) {
+    return (mesh.getCellY(cell) / clusterSize) * clustersWide + mesh.getCellX(cell) / clusterSize;
+  }
+
+  public int getClusterMinX(int cluster) {
+    return (cluster % clustersWide) * clusterSize;
+  }
+
+  public int getClusterMinY(int cluster) {
+    return (cluster / clustersWide) * clusterSize;
+  }
+
+  /**
+   * Return the offset of a cell from the bottom left corner of its cluster, as an index into the
+   * arrays filled by {@link ClusterGraph#findClusterDistances(int, int[], int[])}.
+   *
+   * @param cell The index of the cell
+   * @return The local index of the cell within its cluster
+   * */
+  public int getLocalIndex(int cell) {
+    return (mesh.getCellY(cell) % clusterSize) * clusterSize + mesh.getCellX(cell) % clusterSize;
+  }
+
+  /**
+   * Make sure the graph reflects the current state of the mesh, rebuilding it if needed. Searches
+   * running on other threads may call this at the same time, so only one of them will rebuild it.
+   * */
+  public synchronized void update() {
+    if (outdated) {
+      build();
+    }
+  }
+
+  /**
+   * Mark the graph as needing to be rebuilt, it will be rebuilt the next time it is used.
+   * */
+  public void invalidate() {
+    outdated = true;
+  }
+
+  public int getNodeCount() {
+    return nodeCells.length;
+  }
+
+  public int getNodeCell(int node) {
+    return nodeCells[node];
+  }
+
+  public int[] getClusterNodes(int cluster) {
+    return clusterNodes[cluster];
+  }
+
+  public int[] getEdgeTargets(int node) {
+    return edgeTargets[node];
+  }
+
+  public int[] getEdgeCosts(int node) {
+    return edgeCosts[node];
+  }
+
+  /**
+   * Find the length of the shortest route from a cell to every other cell in its cluster,
+   * without leaving the cluster.
+   *
+   * @param cell The index of the cell to measure from
+   * @param distances An array of at least clusterSize * clusterSize elements to write the
+   *                  distances to, indexed by {@link ClusterGraph#getLocalIndex(int)}. Cells that
+   *                  can't be reached are set to -1
+   * @param queue A scratch array of at least clusterSize * clusterSize elements
+   * */
+  public void findClusterDistances(int cell, int[] distances, int[] queue) {
+    Arrays.fill(distances, 0, clusterSize * clusterSize, -1);
+    int minX = mesh.getCellX(cell) - mesh.getCellX(cell) % clusterSize;
+    int minY = mesh.getCellY(cell) - mesh.getCellY(cell) % clusterSize;
+
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = cell;
+    distances[getLocalIndex(cell)] = 0;
+
+    while (head < tail) {
+      int current = queue[head++];
+      int x = mesh.getCellX(current);
+      int y = mesh.getCellY(current);
+      int distance = distances[getLocalIndex(current)] + 1;
+      int successors = mesh.getSuccessorMask(x, y);
+
+      for (int direction = 0; successors != 0; direction++, successors >>>= 1) {
+        if ((successors & 1) == 0) {
+          continue;
+        }
+        int successorX = x + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction];
+        int successorY = y + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction];
+        if (successorX < minX || successorX >= minX + clusterSize
+            || successorY < minY || successorY >= minY + clusterSize) {
+          continue;
+        }
+        int successor = mesh.getCellIndex(successorX, successorY);
+        int localIndex = getLocalIndex(successor);
+        if (distances[localIndex] == -1) {
+          distances[localIndex] = distance;
+          queue[tail++] = successor;
+        }
+      }
+    }
+  }
+
+  private void build() {
+    outdated = false;
+    nodeIndices.clear();
+    IntArray cells = new IntArray();
+    Array<IntArray> targets = new Array<>();
+    Array<IntArray> costs = new Array<>();
+
+    // Entrances between horizontally neighbouring clusters
+    for (int borderX = clusterSize - 1; borderX < mesh.getWidth() - 1; borderX += clusterSize) {
+      for (int minY = 0; minY < mesh.getHeight(); minY += clusterSize) {
+        int maxY = Math.min(minY + clusterSize, mesh.getHeight());
+        int runStart = -1;
+        for (int y = minY; y <= maxY; y++) {
+          boolean open = y < maxY && mesh.cellTraversable(borderX, y)
+              && mesh.cellTraversable(borderX + 1, y);
+          if (open && runStart == -1) {
+            runStart = y;
+          } else if (!open && runStart != -1) {
+            addEntrance(borderX, runStart, borderX, y - 1, 1, 0, cells, targets, costs);
+            runStart = -1;
+          }
+        }
+      }
+    }
+    // Entrances between vertically neighbouring clusters
+    for (int borderY = clusterSize - 1; borderY < mesh.getHeight() - 1; borderY += clusterSize) {
+      for (int minX = 0; minX < mesh.getWidth(); minX += clusterSize) {
+        int maxX = Math.min(minX + clusterSize, mesh.getWidth());
+        int runStart = -1;
+        for (int x = minX; x <= maxX; x++) {
+          boolean open = x < maxX && mesh.cellTraversable(x, borderY)
+              && mesh.cellTraversable(x, borderY + 1);
+          if (open && runStart == -1) {
+            runStart = x;
+          } else if (!open && runStart != -1) {
+            addEntrance(runStart, borderY, x - 1, borderY, 0, 1, cells, targets, costs);
+            runStart = -1;
+          }
+        }
+      }
+    }
+
+    nodeCells = cells.toArray();
+    IntArray[] nodesByCluster = new IntArray[clustersWide * clustersHigh];
+    for (int i = 0; i < nodesByCluster.length; i++) {
+      nodesByCluster[i] = new IntArray();
+    }
+    for (int node = 0; node < nodeCells.length; node++) {
+      nodesByCluster[getCluster(nodeCells[node])].add(node);
+    }
+    clusterNodes = new int[nodesByCluster.length][];
+    for (int i = 0; i < nodesByCluster.length; i++) {
+      clusterNodes[i] = nodesByCluster[i].toArray();
+    }
+
+    // Connect the nodes within each cluster
+    int[] distances = new int[clusterSize * clusterSize];
+    int[] queue = new int[clusterSize * clusterSize];
+    for (int[] nodes : clusterNodes) {
+      for (int node : nodes) {
+        findClusterDistances(nodeCells[node], distances, queue);
+        for (int other : nodes) {
+          int distance = distances[getLocalIndex(nodeCells[other])];
+          if (other != node && distance != -1) {
+            targets.get(node).add(other);
+            costs.get(node).add(distance);
+          }
+        }
+      }
+    }
+
+    edgeTargets = new int[nodeCells.length][];
+    edgeCosts = new int[nodeCells.length][];
+    for (int node = 0; node < nodeCells.length; node++) {
+      edgeTargets[node] = targets.get(node).toArray();
+      edgeCosts[node] = costs.get(node).toArray();
+    }
+  }
+
+  /**
+   * Add the transitions for a run of free cells along a cluster border.
+   *
+   * @param startX The x coordinate of the first cell of the run, on the lower cluster's side
+   * @param startY The y coordinate of the first cell of the run, on the lower cluster's side
+   * @param endX The x coordinate of the last cell of the run, on the lower cluster's side
+   * @param endY The y coordinate of the last cell of the run, on the lower cluster's side
+   * @param crossX The horizontal offset to the facing cell in the other cluster
+   * @param crossY The vertical offset to the facing cell in the other cluster
+   * */
+  private void addEntrance(int startX, int startY, int endX, int endY, int crossX, int crossY,
+      IntArray cells, Array<IntArray> targets, Array<IntArray> costs) {
+    int length = Math.max(endX - startX, endY - startY) + 1;
+    if (length < WIDE_ENTRANCE_LENGTH) {
+      int middleX = (startX + endX) / 2;
+      int middleY = (startY + endY) / 2;
+      addTransition(middleX, middleY, crossX, crossY, cells, targets, costs);
+    } else {
+      addTransition(startX, startY, crossX, crossY, cells, targets, costs);
+      addTransition(endX, endY, crossX, crossY, cells, targets, costs);
+    }
+  }
+
+  private void addTransition(int x, int y, int crossX, int crossY, IntArray cells,
+      Array<IntArray> targets, Array<IntArray> costs) {
+    int node = getOrAddNode(mesh.getCellIndex(x, y), cells, targets, costs);
+    int facingNode = getOrAddNode(mesh.getCellIndex(x + crossX, y + crossY), cells, targets,
+        costs);
+    targets.get(node).add(facingNode);
+    costs.get(node).add(1);
+    targets.get(facingNode).add(node);
+    costs.get(facingNode).add(1);
+  }
+
+  private int getOrAddNode(int cell, IntArray cells, Array<IntArray> targets,
+      Array<IntArray> costs) {
+    int node = nodeIndices.get(cell, -1);
+    if (node == -1) {
+      node = cells.size;
+      nodeIndices.put(cell, node);
+      cells.add(cell);
+      targets.add(new IntArray());
+      costs.add(new IntArray());
+    }
+    return node;
+  }
+}
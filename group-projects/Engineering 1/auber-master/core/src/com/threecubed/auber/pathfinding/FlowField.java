@@ -0,0 +1,103 @@
+package com.threecubed.auber.pathfinding;
+
+import java.util.Arrays;
+
+
+/**
+ * A flow field stores, for every cell of a {@link NavigationMesh}, the next cell to move to
+ * in order to reach a single destination along a shortest path. It is built once with a
+ * breadth-first search outwards from the destination (every move costs the same, so this is
+ * equivalent to a reverse Dijkstra), after which finding the next step from any cell is a single
+ * array lookup. This makes it worthwhile for destinations that lots of NPCs travel to.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class FlowField {
+  private final NavigationMesh mesh;
+  private final int destination;
+  private final int[] nextCells;
+  /**
+   * The queue of the breadth-first search, kept between rebuilds since setting any cell of the
+   * mesh outdates every field. Every cell is queued at most once, so a plain array is enough.
+   * */
+  private final int[] queue;
+  private boolean outdated = true;
+
+  /**
+   * Build a flow field towards a given cell.
+   *
+   * @param mesh The navigation mesh the field covers
+   * @param destination The index of the cell the field leads to
+   * */
+  public FlowField(NavigationMesh mesh, int destination) {
+    this.mesh = mesh;
+    this.destination = destination;
+    nextCells = new int[mesh.getCellCount()];
+    queue = new int[mesh.getCellCount()];
+    rebuild();
+  }
+
+  public int getDestination() {
+    return destination;
+  }
+
+  /**
+   * Return the cell to move to next from a given cell.
+   *
+   * @param cell The index of the cell to move from
+   * @return The index of the next cell on a shortest path to the destination, or -1 if the
+   *         destination can't be reached from the given cell
+   * */
+  public int getNextCell(int cell) {
+    if (outdated) {
+      rebuild();
+    }
+    return nextCells[cell];
+  }
+
+  /**
+   * Mark the field as needing to be rebuilt, it will be rebuilt the next time it is used.
+   * */
+  public void invalidate() {
+    outdated = true;
+  }
+
+  /**
+   * Recalculate the field from the current state of the mesh.
+   * */
+  public void rebuild() {
+    Arrays.fill(nextCells, -1);
+    outdated = false;
+
+    int destinationX = mesh.getCellX(destination);
+    int destinationY = mesh.getCellY(destination);
+    if (!mesh.cellTraversable(destinationX, destinationY)) {
+      return;
+    }
+
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = destination;
+    nextCells[destination] = destination;
+
+    while (head < tail) {
+      int current = queue[head++];
+      int x = mesh.getCellX(current);
+      int y = mesh.getCellY(current);
+      // Moves are symmetric, so any cell that can be moved to from here can also move back
+      int neighbours = mesh.getSuccessorMask(x, y);
+      for (int direction = 0; neighbours != 0; direction++, neighbours >>>= 1) {
+        if ((neighbours & 1) == 0) {
+          continue;
+        }
+        int neighbour = mesh.getCellIndex(x + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+                                          y + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction]);
+        if (nextCells[neighbour] == -1) {
+          nextCells[neighbour] = current;
+          queue[tail++] = neighbour;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.utils.IntArray;
+
+
+/**
+ * A {@link PathFinder} backed by gdx-ai's {@link IndexedAStarPathFinder}, searching a
+ * {@link NavigationGraph} built over the mesh. It uses the same costs and heuristic as
+ * {@link AStarSearch}, so the two can be compared directly.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class GdxAiPathFinder implements PathFinder {
+  private final NavigationMesh mesh;
+  private final NavigationGraph graph;
+  private final IndexedAStarPathFinder<Integer> finder;
+  private final DefaultGraphPath<Integer> nodePath = new DefaultGraphPath<>();
+  private int expandedNodes = 0;
+
+  /** The number of moves between two cells on an empty grid, where every move costs 1. */
+  private final Heuristic<Integer> heuristic = new Heuristic<Integer>() {
+    @Override
+    public float estimate(Integer node, Integer endNode) {
+      int cell = node;
+      int endCell = endNode;
+      return Math.max(Math.abs(mesh.getCellX(endCell) - mesh.getCellX(cell)),
+                      Math.abs(mesh.getCellY(endCell) - mesh.getCellY(cell)));
+    }
+  };
+
+  /**
+   * Create a path finder over a mesh.
+   *
+   * @param mesh The navigation mesh to search
+   * */
+  public GdxAiPathFinder(NavigationMesh mesh) {
+    this.mesh = mesh;
+    graph = new NavigationGraph(mesh);
+    finder = new IndexedAStarPathFinder<>(graph);
+  }
+
+  @Override
+  public boolean findPath(int start, int destination, IntArray path) {
+    path.clear();
+    nodePath.clear();
+    int expansionsBefore = graph.getExpansions();
+    boolean found = finder.searchNodePath(graph.getNode(start), graph.getNode(destination),
+        heuristic, nodePath);
+    expandedNodes = graph.getExpansions() - expansionsBefore;
+    if (!found) {
+      return false;
+    }
+    // The node path includes the start, which paths across the mesh leave out
+    for (int i = 1; i < nodePath.getCount(); i++) {
+      path.add(nodePath.get(i));
+    }
+    return true;
+  }
+
+  @Override
+  public int getExpandedNodes() {
+    return expandedNodes;
+  }
+}
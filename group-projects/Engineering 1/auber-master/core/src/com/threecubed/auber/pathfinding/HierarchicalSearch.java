@@ -0,0 +1,254 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.utils.IntArray;
+import java.util.Arrays;
+
+
+/**
+ * A hierarchical path-finding (HPA*) search over a {@link NavigationMesh}. Rather than searching
+ * every cell between two points, it first searches the much smaller {@link ClusterGraph} of
+ * entrances between clusters, then refines the result into cells by searching within each
+ * cluster the route crosses. The cost of a long route therefore grows with the number of clusters
+ * crossed rather than the number of cells in the mesh. Routes only cross between clusters at
+ * entrances, so paths can be slightly longer than those found by {@link AStarSearch}.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class HierarchicalSearch extends TileSearch {
+  private final ClusterGraph graph;
+
+  private final int[] startDistances;
+  private final int[] destinationDistances;
+  private final int[] clusterQueue;
+  private final IntArray abstractPath = new IntArray();
+  private final IntArray segment = new IntArray();
+
+  private NodeHeap abstractOpenNodes;
+  private int[] abstractCosts;
+  private int[] abstractParents;
+  private int[] abstractOpened;
+  private int[] abstractClosed;
+  private int abstractGeneration = 0;
+
+  /**
+   * Create a search over the given mesh using a shared cluster graph.
+   *
+   * @param mesh The navigation mesh to search
+   * @param graph The cluster graph built over the mesh
+   * */
+  public HierarchicalSearch(NavigationMesh mesh, ClusterGraph graph) {
+    super(mesh);
+    this.graph = graph;
+    int clusterCells = graph.getClusterSize() * graph.getClusterSize();
+    startDistances = new int[clusterCells];
+    destinationDistances = new int[clusterCells];
+    clusterQueue = new int[clusterCells];
+  }
+
+  @Override
+  public boolean findPath(int start, int destination, IntArray path) {
+    path.clear();
+    expandedNodes = 0;
+    if (start == destination) {
+      return true;
+    }
+    if (!mesh.cellTraversable(mesh.getCellX(destination), mesh.getCellY(destination))) {
+      // The graph search would otherwise route to the closest node and stop short of the wall
+      return false;
+    }
+    graph.update();
+
+    int startCluster = graph.getCluster(start);
+    int destinationCluster = graph.getCluster(destination);
+    if (startCluster == destinationCluster && searchCluster(start, destination, path)) {
+      return true;
+    }
+
+    graph.findClusterDistances(start, startDistances, clusterQueue);
+    graph.findClusterDistances(destination, destinationDistances, clusterQueue);
+    if (!searchGraph(startCluster, destination, destinationCluster)) {
+      return false;
+    }
+
+    // Refine the route one cluster at a time, giving up if any leg of it can't be walked, rather
+    // than returning a path that stops short
+    int previous = start;
+    for (int i = 0; i < abstractPath.size; i++) {
+      int cell = graph.getNodeCell(abstractPath.get(i));
+      if (cell == previous) {
+        continue;
+      }
+      if (graph.getCluster(cell) != graph.getCluster(previous)) {
+        // Facing cells of an entrance are always next to each other
+        path.add(cell);
+      } else if (!searchCluster(previous, cell, path)) {
+        path.clear();
+        return false;
+      }
+      previous = cell;
+    }
+    if (previous != destination && !searchCluster(previous, destination, path)) {
+      path.clear();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Search the cluster graph for a route from the start cell to the destination cell, writing the
+   * nodes along it to {@link HierarchicalSearch#abstractPath}. The start and destination are
+   * connected to the nodes of their clusters using the distances found for them beforehand.
+   *
+   * @return Whether a route could be found
+   * */
+  private boolean searchGraph(int startCluster, int destination, int destinationCluster) {
+    int nodeCount = graph.getNodeCount();
+    int startNode = nodeCount;
+    int destinationNode = nodeCount + 1;
+    prepareGraphSearch(nodeCount + 2);
+
+    int destinationX = mesh.getCellX(destination);
+    int destinationY = mesh.getCellY(destination);
+
+    abstractCosts[startNode] = 0;
+    abstractParents[startNode] = -1;
+    abstractOpened[startNode] = abstractGeneration;
+    abstractOpenNodes.add(startNode, 0);
+
+    while (!abstractOpenNodes.isEmpty()) {
+      int current = abstractOpenNodes.poll();
+      if (current == destinationNode) {
+        abstractPath.clear();
+        for (int node = abstractParents[current]; node != startNode;
+            node = abstractParents[node]) {
+          abstractPath.add(node);
+        }
+        abstractPath.reverse();
+        return true;
+      }
+      abstractClosed[current] = abstractGeneration;
+
+      if (current == startNode) {
+        for (int node : graph.getClusterNodes(startCluster)) {
+          int distance = startDistances[graph.getLocalIndex(graph.getNodeCell(node))];
+          if (distance != -1) {
+            relaxNode(node, current, distance, destinationX, destinationY);
+          }
+        }
+        continue;
+      }
+
+      int[] targets = graph.getEdgeTargets(current);
+      int[] costs = graph.getEdgeCosts(current);
+      for (int i = 0; i < targets.length; i++) {
+        relaxNode(targets[i], current, abstractCosts[current] + costs[i],
+            destinationX, destinationY);
+      }
+      if (graph.getCluster(graph.getNodeCell(current)) == destinationCluster) {
+        int distance = destinationDistances[graph.getLocalIndex(graph.getNodeCell(current))];
+        if (distance != -1) {
+          relaxNode(destinationNode, current, abstractCosts[current] + distance,
+              destinationX, destinationY);
+        }
+      }
+    }
+    return false;
+  }
+
+  private void relaxNode(int node, int parent, int cost, int destinationX, int destinationY) {
+    if (abstractClosed[node] == abstractGeneration) {
+      return;
+    }
+    if (abstractOpened[node] != abstractGeneration || cost < abstractCosts[node]) {
+      abstractOpened[node] = abstractGeneration;
+      abstractCosts[node] = cost;
+      abstractParents[node] = parent;
+      int estimate = 0;
+      if (node < graph.getNodeCount()) {
+        int cell = graph.getNodeCell(node);
+        estimate = estimateCost(mesh.getCellX(cell), mesh.getCellY(cell),
+            destinationX, destinationY);
+      }
+      abstractOpenNodes.add(node, cost + estimate);
+    }
+  }
+
+  /**
+   * Reset the state of the graph search, growing it if the graph has been rebuilt with more
+   * nodes than it can hold.
+   *
+   * @param nodeCount The number of nodes that will be searched
+   * */
+  private void prepareGraphSearch(int nodeCount) {
+    if (abstractOpenNodes == null || abstractCosts.length < nodeCount) {
+      abstractOpenNodes = new NodeHeap(nodeCount);
+      abstractCosts = new int[nodeCount];
+      abstractParents = new int[nodeCount];
+      abstractOpened = new int[nodeCount];
+      abstractClosed = new int[nodeCount];
+      abstractGeneration = 0;
+    }
+    abstractOpenNodes.clear();
+    abstractGeneration++;
+    if (abstractGeneration == Integer.MAX_VALUE) {
+      Arrays.fill(abstractOpened, 0);
+      Arrays.fill(abstractClosed, 0);
+      abstractGeneration = 1;
+    }
+  }
+
+  /**
+   * Run an A* search between two cells of the same cluster without leaving the cluster, adding
+   * the cells found to the end of a path.
+   *
+   * @param start The index of the cell to start from
+   * @param destination The index of the cell to find a path to
+   * @param path The path to add the cells to, excluding the start and including the destination
+   *
+   * @return Whether a path could be found within the cluster
+   * */
+  private boolean searchCluster(int start, int destination, IntArray path) {
+    nextGeneration();
+    int cluster = graph.getCluster(start);
+    int clusterMinX = graph.getClusterMinX(cluster);
+    int clusterMinY = graph.getClusterMinY(cluster);
+    int clusterSize = graph.getClusterSize();
+
+    int destinationX = mesh.getCellX(destination);
+    int destinationY = mesh.getCellY(destination);
+    openStart(start, estimateCost(mesh.getCellX(start), mesh.getCellY(start),
+        destinationX, destinationY));
+
+    while (!openNodes.isEmpty()) {
+      int current = openNodes.poll();
+      if (current == destination) {
+        segment.clear();
+        tracePath(destination, segment);
+        path.addAll(segment);
+        return true;
+      }
+      close(current);
+
+      int currentX = mesh.getCellX(current);
+      int currentY = mesh.getCellY(current);
+      int successors = mesh.getSuccessorMask(currentX, currentY);
+      int successorCost = pathCosts[current] + 1;
+
+      for (int direction = 0; successors != 0; direction++, successors >>>= 1) {
+        if ((successors & 1) == 0) {
+          continue;
+        }
+        int successorX = currentX + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction];
+        int successorY = currentY + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction];
+        if (successorX < clusterMinX || successorX >= clusterMinX + clusterSize
+            || successorY < clusterMinY || successorY >= clusterMinY + clusterSize) {
+          continue;
+        }
+        relax(mesh.getCellIndex(successorX, successorY), current, successorCost,
+            estimateCost(successorX, successorY, destinationX, destinationY));
+      }
+    }
+    return false;
+  }
+}
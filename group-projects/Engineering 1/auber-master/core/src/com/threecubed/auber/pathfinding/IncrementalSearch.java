@@ -0,0 +1,227 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.utils.IntArray;
+import java.util.Arrays;
+
+
+/**
+ * A D* Lite search over a {@link NavigationMesh}. It searches backwards from the destination and
+ * keeps the cost of every cell it has visited between searches. When it is asked for another
+ * path to the same destination, from wherever the agent has got to, it only revisits the cells
+ * whose cost has been changed by cells of the mesh being set since its last search. The work
+ * done to repair a path therefore grows with the size of the change rather than the size of the
+ * mesh.
+ *
+ * <p>Since its state belongs to a single destination, each agent should own its own search.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class IncrementalSearch extends TileSearch {
+  /** The cost of cells the destination can't be reached from, small enough not to overflow. */
+  private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+  /** The best known cost from each cell to the destination, rhs in the D* Lite paper. */
+  private final int[] lookaheadCosts;
+  private final IntArray changedCells = new IntArray();
+
+  private int destination = -1;
+  private int lastStart;
+  private int keyModifier;
+  private int meshVersion;
+
+  public IncrementalSearch(NavigationMesh mesh) {
+    super(mesh);
+    lookaheadCosts = new int[mesh.getCellCount()];
+  }
+
+  @Override
+  public boolean findPath(int start, int destination, IntArray path) {
+    path.clear();
+    expandedNodes = 0;
+    if (start == destination) {
+      return true;
+    }
+
+    if (destination != this.destination || !mesh.getChangesSince(meshVersion, changedCells)) {
+      reset(start, destination);
+    } else {
+      // The keys already queued were worked out from the previous start, so lift new ones to
+      // match rather than recalculating every queued key
+      keyModifier += estimateCost(mesh.getCellX(lastStart), mesh.getCellY(lastStart),
+          mesh.getCellX(start), mesh.getCellY(start));
+      lastStart = start;
+      for (int i = 0; i < changedCells.size; i++) {
+        // Setting a cell changes moves into and out of it, and diagonal moves past its corners
+        int x = mesh.getCellX(changedCells.get(i));
+        int y = mesh.getCellY(changedCells.get(i));
+        updateCell(x, y, start);
+        for (int direction = 0; direction < 8; direction++) {
+          updateCell(x + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+              y + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction], start);
+        }
+      }
+    }
+    meshVersion = mesh.getVersion();
+    // The start may not be a cell others can move into, so it might not have been reached yet
+    updateCell(mesh.getCellX(start), mesh.getCellY(start), start);
+
+    computeCosts(start);
+    if (lookaheadCosts[start] >= UNREACHABLE) {
+      return false;
+    }
+
+    // Every step along a shortest path lowers the cost by one
+    int current = start;
+    for (int steps = 0; current != destination && steps < pathCosts.length; steps++) {
+      current = getCheapestSuccessor(current);
+      if (current == -1) {
+        return false;
+      }
+      path.add(current);
+    }
+    return current == destination;
+  }
+
+  /**
+   * Throw away the state of the previous search and start again towards a new destination.
+   * */
+  private void reset(int start, int destination) {
+    this.destination = destination;
+    lastStart = start;
+    keyModifier = 0;
+    openNodes.clear();
+    Arrays.fill(pathCosts, UNREACHABLE);
+    Arrays.fill(lookaheadCosts, UNREACHABLE);
+    lookaheadCosts[destination] = 0;
+    queue(destination, start);
+  }
+
+  /**
+   * Expand cells until the cost of the start cell is known to be correct.
+   * */
+  private void computeCosts(int start) {
+    int startX = mesh.getCellX(start);
+    int startY = mesh.getCellY(start);
+    while (!openNodes.isEmpty()) {
+      int cell = openNodes.peek();
+      float priority = openNodes.getPriority(cell);
+      float tieBreak = openNodes.getTieBreak(cell);
+      int startKey = getKey(start, startX, startY);
+      int startTieBreak = Math.min(pathCosts[start], lookaheadCosts[start]);
+      if ((priority > startKey || (priority == startKey && tieBreak >= startTieBreak))
+          && lookaheadCosts[start] == pathCosts[start]) {
+        break;
+      }
+      expandedNodes++;
+
+      int key = getKey(cell, startX, startY);
+      int cellTieBreak = Math.min(pathCosts[cell], lookaheadCosts[cell]);
+      if (priority < key || (priority == key && tieBreak < cellTieBreak)) {
+        // Queued before the start moved, so its key is out of date
+        openNodes.update(cell, key, cellTieBreak);
+      } else if (pathCosts[cell] > lookaheadCosts[cell]) {
+        pathCosts[cell] = lookaheadCosts[cell];
+        openNodes.remove(cell);
+        updatePredecessors(cell, start);
+      } else {
+        pathCosts[cell] = UNREACHABLE;
+        updateCell(mesh.getCellX(cell), mesh.getCellY(cell), start);
+        updatePredecessors(cell, start);
+      }
+    }
+  }
+
+  /**
+   * Recalculate the best known cost from a cell to the destination from the costs of the cells
+   * it can move to, and queue the cell if that no longer matches its current cost.
+   * */
+  private void updateCell(int x, int y, int start) {
+    if (!mesh.cellInBounds(x, y)) {
+      return;
+    }
+    int cell = mesh.getCellIndex(x, y);
+    if (cell != destination) {
+      int cost = UNREACHABLE;
+      // Nothing can move into a cell that isn't traversable, so it has no use as a step
+      if (cell == start || mesh.cellTraversable(x, y)) {
+        int successor = getCheapestSuccessor(cell);
+        if (successor != -1) {
+          cost = Math.min(pathCosts[successor] + 1, UNREACHABLE);
+        }
+      }
+      lookaheadCosts[cell] = cost;
+    }
+    if (pathCosts[cell] != lookaheadCosts[cell]) {
+      queue(cell, start);
+    } else {
+      openNodes.remove(cell);
+    }
+  }
+
+  /**
+   * Update every cell that can move to a cell whose cost has changed.
+   * */
+  private void updatePredecessors(int cell, int start) {
+    int x = mesh.getCellX(cell);
+    int y = mesh.getCellY(cell);
+    if (!mesh.cellTraversable(x, y)) {
+      return;
+    }
+    // Moves between traversable cells work both ways
+    int neighbours = mesh.getSuccessorMask(x, y);
+    for (int direction = 0; neighbours != 0; direction++, neighbours >>>= 1) {
+      if ((neighbours & 1) != 0) {
+        updateCell(x + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+            y + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction], start);
+      }
+    }
+    if (!mesh.cellTraversable(mesh.getCellX(start), mesh.getCellY(start))
+        && estimateCost(x, y, mesh.getCellX(start), mesh.getCellY(start)) == 1) {
+      updateCell(mesh.getCellX(start), mesh.getCellY(start), start);
+    }
+  }
+
+  /**
+   * Return the cell that can be moved to from a cell with the lowest cost to the destination.
+   *
+   * @return The index of the cheapest successor, or -1 if none of them can reach the destination
+   * */
+  private int getCheapestSuccessor(int cell) {
+    int x = mesh.getCellX(cell);
+    int y = mesh.getCellY(cell);
+    int cheapest = -1;
+    int successors = mesh.getSuccessorMask(x, y);
+    for (int direction = 0; successors != 0; direction++, successors >>>= 1) {
+      if ((successors & 1) == 0) {
+        continue;
+      }
+      int successor = mesh.getCellIndex(x + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+                                        y + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction]);
+      if (pathCosts[successor] < UNREACHABLE
+          && (cheapest == -1 || pathCosts[successor] < pathCosts[cheapest])) {
+        cheapest = successor;
+      }
+    }
+    return cheapest;
+  }
+
+  private void queue(int cell, int start) {
+    float key = getKey(cell, mesh.getCellX(start), mesh.getCellY(start));
+    float tieBreak = Math.min(pathCosts[cell], lookaheadCosts[cell]);
+    if (openNodes.contains(cell)) {
+      openNodes.update(cell, key, tieBreak);
+    } else {
+      openNodes.add(cell, key, tieBreak);
+    }
+  }
+
+  /**
+   * Work out the main priority of a cell, its cost to the destination plus an estimate of the
+   * cost of getting to it from the start.
+   * */
+  private int getKey(int cell, int startX, int startY) {
+    return Math.min(pathCosts[cell], lookaheadCosts[cell])
+        + estimateCost(mesh.getCellX(cell), mesh.getCellY(cell), startX, startY) + keyModifier;
+  }
+}
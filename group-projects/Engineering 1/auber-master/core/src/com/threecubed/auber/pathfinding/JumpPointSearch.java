@@ -0,0 +1,189 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.utils.IntArray;
+
+
+/**
+ * A Jump Point Search over a {@link NavigationMesh}. Since every move on the mesh costs the
+ * same, many paths between two cells are symmetric and only differ in the order their moves are
+ * made in. JPS only ever considers the canonical ordering of those moves, scanning along straight
+ * and diagonal lines until it finds a cell with a neighbour that can't be reached optimally any
+ * other way (a jump point) and only adding those cells to the open set.
+ *
+ * <p>The rules used are those for grids that don't allow corner cutting, matching
+ * {@link NavigationMesh#getSuccessorMask(int, int)}: a diagonal move is only allowed when both
+ * orthogonal cells next to it are free.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class JumpPointSearch extends TileSearch {
+  private int destination;
+
+  public JumpPointSearch(NavigationMesh mesh) {
+    super(mesh);
+  }
+
+  @Override
+  public boolean findPath(int start, int destination, IntArray path) {
+    path.clear();
+    expandedNodes = 0;
+    if (start == destination) {
+      return true;
+    }
+    nextGeneration();
+    this.destination = destination;
+
+    int destinationX = mesh.getCellX(destination);
+    int destinationY = mesh.getCellY(destination);
+    openStart(start, estimateCost(mesh.getCellX(start), mesh.getCellY(start),
+        destinationX, destinationY));
+
+    while (!openNodes.isEmpty()) {
+      int current = openNodes.poll();
+      if (current == destination) {
+        tracePath(destination, path);
+        return true;
+      }
+      close(current);
+
+      int x = mesh.getCellX(current);
+      int y = mesh.getCellY(current);
+      int parent = parents[current];
+
+      if (parent == -1) {
+        int successors = mesh.getSuccessorMask(x, y);
+        for (int direction = 0; direction < 8; direction++) {
+          if ((successors & (1 << direction)) != 0) {
+            jumpFrom(current, NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+                NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction]);
+          }
+        }
+        continue;
+      }
+
+      int directionX = Integer.signum(x - mesh.getCellX(parent));
+      int directionY = Integer.signum(y - mesh.getCellY(parent));
+
+      if (directionX != 0 && directionY != 0) {
+        boolean horizontalFree = walkable(x + directionX, y);
+        boolean verticalFree = walkable(x, y + directionY);
+        if (verticalFree) {
+          jumpFrom(current, 0, directionY);
+        }
+        if (horizontalFree) {
+          jumpFrom(current, directionX, 0);
+        }
+        if (horizontalFree && verticalFree) {
+          jumpFrom(current, directionX, directionY);
+        }
+      } else if (directionX != 0) {
+        boolean aboveFree = walkable(x, y + 1);
+        boolean belowFree = walkable(x, y - 1);
+        if (walkable(x + directionX, y)) {
+          jumpFrom(current, directionX, 0);
+          if (aboveFree) {
+            jumpFrom(current, directionX, 1);
+          }
+          if (belowFree) {
+            jumpFrom(current, directionX, -1);
+          }
+        }
+        if (aboveFree) {
+          jumpFrom(current, 0, 1);
+        }
+        if (belowFree) {
+          jumpFrom(current, 0, -1);
+        }
+      } else {
+        boolean rightFree = walkable(x + 1, y);
+        boolean leftFree = walkable(x - 1, y);
+        if (walkable(x, y + directionY)) {
+          jumpFrom(current, 0, directionY);
+          if (rightFree) {
+            jumpFrom(current, 1, directionY);
+          }
+          if (leftFree) {
+            jumpFrom(current, -1, directionY);
+          }
+        }
+        if (rightFree) {
+          jumpFrom(current, 1, 0);
+        }
+        if (leftFree) {
+          jumpFrom(current, -1, 0);
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Jump from a cell in a given direction and add the jump point found, if any, to the open set.
+   *
+   * @param cell The index of the cell to jump from
+   * @param directionX The horizontal direction to jump in
+   * @param directionY The vertical direction to jump in
+   * */
+  private void jumpFrom(int cell, int directionX, int directionY) {
+    int x = mesh.getCellX(cell);
+    int y = mesh.getCellY(cell);
+    int jumpPoint = jump(x + directionX, y + directionY, directionX, directionY);
+    if (jumpPoint == -1) {
+      return;
+    }
+    int jumpX = mesh.getCellX(jumpPoint);
+    int jumpY = mesh.getCellY(jumpPoint);
+    // Every move along the jump costs 1, so the cost is the number of cells passed over
+    int jumpCost = Math.max(Math.abs(jumpX - x), Math.abs(jumpY - y));
+    relax(jumpPoint, cell, pathCosts[cell] + jumpCost,
+        estimateCost(jumpX, jumpY, mesh.getCellX(destination), mesh.getCellY(destination)));
+  }
+
+  /**
+   * Scan from a cell in a given direction until a jump point is found.
+   *
+   * @param x The x coordinate of the first cell to test
+   * @param y The y coordinate of the first cell to test
+   * @param directionX The horizontal direction of travel
+   * @param directionY The vertical direction of travel
+   *
+   * @return The index of the jump point, or -1 if the scan hit an obstacle first
+   * */
+  private int jump(int x, int y, int directionX, int directionY) {
+    while (walkable(x, y)) {
+      int cell = mesh.getCellIndex(x, y);
+      if (cell == destination) {
+        return cell;
+      }
+
+      if (directionX != 0 && directionY != 0) {
+        // A diagonal scan stops wherever one of its orthogonal scans finds a jump point
+        if (jump(x + directionX, y, directionX, 0) != -1
+            || jump(x, y + directionY, 0, directionY) != -1) {
+          return cell;
+        }
+        if (!walkable(x + directionX, y) || !walkable(x, y + directionY)) {
+          return -1;
+        }
+      } else if (directionX != 0) {
+        if ((walkable(x, y + 1) && !walkable(x - directionX, y + 1))
+            || (walkable(x, y - 1) && !walkable(x - directionX, y - 1))) {
+          return cell;
+        }
+      } else {
+        if ((walkable(x + 1, y) && !walkable(x + 1, y - directionY))
+            || (walkable(x - 1, y) && !walkable(x - 1, y - directionY))) {
+          return cell;
+        }
+      }
+      x += directionX;
+      y += directionY;
+    }
+    return -1;
+  }
+
+  private boolean walkable(int x, int y) {
+    return mesh.cellTraversable(x, y);
+  }
+}
@@ -0,0 +1,120 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.DefaultConnection;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedGraph;
+import com.badlogic.gdx.utils.Array;
+
+
+/**
+ * Exposes a {@link NavigationMesh} as an {@link IndexedGraph} so that the path finders from
+ * gdx-ai can search it. Nodes are the packed cell indices of the mesh and every move between
+ * cells, following {@link NavigationMesh#getSuccessorMask(int, int)}, is a connection costing 1.
+ *
+ * <p>The node and connection objects are created once per cell and the connections of a cell are
+ * only worked out again after the mesh changes, so searching the graph doesn't allocate.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class NavigationGraph implements IndexedGraph<Integer> {
+  private final NavigationMesh mesh;
+  private final Integer[] nodes;
+  /** Every possible connection out of each cell, indexed by direction. */
+  private final DefaultConnection<Integer>[][] moves;
+  private final Array<Connection<Integer>>[] connections;
+  private final int[] connectionVersions;
+  private int expansions = 0;
+
+  /**
+   * Create a graph over a mesh.
+   *
+   * @param mesh The mesh to expose as a graph
+   * */
+  // Java can't create arrays of a generic type, so the arrays are created raw and cast
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public NavigationGraph(NavigationMesh mesh) {
+    this.mesh = mesh;
+    int cellCount = mesh.getCellCount();
+    nodes = new Integer[cellCount];
+    for (int cell = 0; cell < cellCount; cell++) {
+      nodes[cell] = Integer.valueOf(cell);
+    }
+    moves = new DefaultConnection[cellCount][];
+    connections = new Array[cellCount];
+    connectionVersions = new int[cellCount];
+  }
+
+  /**
+   * Return the node object of a cell. Searches must start and end at these rather than any other
+   * Integer with the same value.
+   *
+   * @param cell The index of the cell
+   * @return The node representing the cell
+   * */
+  public Integer getNode(int cell) {
+    return nodes[cell];
+  }
+
+  /**
+   * Return how many times the connections of a node have been asked for. The searches in gdx-ai
+   * ask once for each node they expand, so this counts the nodes expanded by every search run
+   * over the graph so far.
+   *
+   * @return The number of nodes expanded over the graph
+   * */
+  public int getExpansions() {
+    return expansions;
+  }
+
+  @Override
+  public int getIndex(Integer node) {
+    return node;
+  }
+
+  @Override
+  public int getNodeCount() {
+    return nodes.length;
+  }
+
+  @Override
+  public Array<Connection<Integer>> getConnections(Integer node) {
+    expansions++;
+    int cell = node;
+    Array<Connection<Integer>> cellConnections = connections[cell];
+    if (cellConnections == null) {
+      cellConnections = new Array<>(false, 8);
+      connections[cell] = cellConnections;
+      moves[cell] = createMoves(cell);
+    } else if (connectionVersions[cell] == mesh.getVersion()) {
+      return cellConnections;
+    }
+
+    connectionVersions[cell] = mesh.getVersion();
+    cellConnections.clear();
+    int successors = mesh.getSuccessorMask(mesh.getCellX(cell), mesh.getCellY(cell));
+    for (int direction = 0; successors != 0; direction++, successors >>>= 1) {
+      if ((successors & 1) != 0) {
+        cellConnections.add(moves[cell][direction]);
+      }
+    }
+    return cellConnections;
+  }
+
+  // As in the constructor, the array of generic connections has to be created raw
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private DefaultConnection<Integer>[] createMoves(int cell) {
+    DefaultConnection<Integer>[] cellMoves = new DefaultConnection[8];
+    int x = mesh.getCellX(cell);
+    int y = mesh.getCellY(cell);
+    for (int direction = 0; direction < 8; direction++) {
+      int targetX = x + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction];
+      int targetY = y + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction];
+      if (mesh.cellInBounds(targetX, targetY)) {
+        cellMoves[direction] = new DefaultConnection<>(nodes[cell],
+            nodes[mesh.getCellIndex(targetX, targetY)]);
+      }
+    }
+    return cellMoves;
+  }
+}
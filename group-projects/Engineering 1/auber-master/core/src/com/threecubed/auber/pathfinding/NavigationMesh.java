@@ -3,19 +3,18 @@ package com.threecubed.auber.pathfinding;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
 import com.badlogic.gdx.math.Vector2;
-import com.threecubed.auber.entities.GameEntity;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.PriorityQueue;
 
 
 /**
- * The NavigationMesh class is a wrapper around a 2d array of {@link Boolean}s representing which
- * tiles within the game world are accessible. It reads in a {@link TiledMapTileLayer} in order to
- * produce this array of booleans. If a given set of coordinates do not have a tile, it is
- * considered inaccessible. For this reason, the background layer of the map is used as the input
+ * The NavigationMesh class is a wrapper around a bitset representing which tiles within the game
+ * world are accessible, one bit per tile. It reads in a {@link TiledMapTileLayer} in order to
+ * produce this bitset. If a given set of coordinates do not have a tile, it is considered
+ * inaccessible. For this reason, the background layer of the map is used as the input
  * for the navigation mesh.
  * The class also contains functions required to facilitate A* pathfinding which entities that
  * inherit from Npc make use of.
@@ -25,9 +24,71 @@ import java.util.PriorityQueue;
  * @since 1.0
  * */
 public class NavigationMesh {
-  private boolean[][] mesh;
+  /**
+   * Horizontal offsets of the 8 cells surrounding a cell, indexed by the bits of
+   * {@link NavigationMesh#getSuccessorMask(int, int)}. Orthogonal neighbours come first.
+   * */
+  public static final int[] NEIGHBOUR_OFFSETS_X = {0, -1, 1, 0, -1, 1, -1, 1};
+  /** Vertical offsets matching {@link NavigationMesh#NEIGHBOUR_OFFSETS_X}. */
+  public static final int[] NEIGHBOUR_OFFSETS_Y = {-1, 0, 0, 1, -1, -1, 1, 1};
+  /** The number of paths cached when no cache size is given. */
+  public static final int DEFAULT_PATH_CACHE_SIZE = 256;
+  /** The number of most recent cell changes remembered for incremental searches to repair. */
+  public static final int CHANGE_LOG_SIZE = 64;
+
+  /**
+   * One bit per cell, set if the cell is accessible. Each row starts on a new word and cell x of
+   * a row is stored in bit x + 1, leaving an always clear bit either side of the row so the cells
+   * around any cell can be read without checking the bounds of the row.
+   * */
+  private final long[] mesh;
+  private final int wordsPerRow;
+  private final int width;
+  private final int height;
   TiledMapTileLayer navigationLayer;
 
+  private SearchModes searchMode = SearchModes.A_STAR;
+  private PathFinder search;
+  private final IntArray searchPath = new IntArray();
+  private final IntMap<FlowField> flowFields = new IntMap<>();
+  private final PathCache pathCache;
+  private ClusterGraph clusterGraph;
+  private RegionGraph regionGraph;
+  private NextHopTable nextHops;
+  private int version = 0;
+  /** The cell changed to reach each version of the mesh, indexed by version modulo the size. */
+  private final int[] changeLog = new int[CHANGE_LOG_SIZE];
+
+  /** The algorithms that can be used to find paths across the mesh. */
+  public static enum SearchModes {
+    /** A* search, expanding every neighbour of each visited cell. */
+    A_STAR,
+    /** Jump Point Search, returns paths of the same length as A* while expanding fewer cells. */
+    JUMP_POINT,
+    /**
+     * Hierarchical search over clusters of cells, scales to large maps at the cost of slightly
+     * longer paths.
+     * */
+    HIERARCHICAL,
+    /**
+     * A* search where diagonal moves cost the square root of two, finds the geometrically
+     * shortest paths rather than those with the fewest moves.
+     * */
+    OCTILE,
+    /**
+     * D* Lite, keeps its state between searches towards the same destination and only repairs
+     * the part of it affected by cells that have changed. Each agent should own its own search.
+     * */
+    INCREMENTAL,
+    /** The A* search from gdx-ai, run over {@link NavigationGraph}, to compare the others to. */
+    GDX_AI,
+    /**
+     * Search over rectangular regions of cells rather than the cells themselves, expands far
+     * fewer nodes at the cost of slightly longer paths.
+     * */
+    REGION
+  }
+
   /**
    * Produce a navigation mesh from a given {@link TiledMapTileLayer}.
    * This works by iterating over the given layer and appending either true or false to the mesh
@@ -36,9 +97,24 @@ public class NavigationMesh {
    * @param navigationLayer The layer to produce a navigation mesh from
    * */
   public NavigationMesh(TiledMapTileLayer navigationLayer) {
+    this(navigationLayer, DEFAULT_PATH_CACHE_SIZE);
+  }
+
+  /**
+   * Produce a navigation mesh from a given {@link TiledMapTileLayer}, with a path cache of the
+   * given size.
+   *
+   * @param navigationLayer The layer to produce a navigation mesh from
+   * @param pathCacheSize The maximum number of paths to cache, 0 disables the cache
+   * */
+  public NavigationMesh(TiledMapTileLayer navigationLayer, int pathCacheSize) {
     this.navigationLayer = navigationLayer;
+    width = navigationLayer.getWidth();
+    height = navigationLayer.getHeight();
+    pathCache = new PathCache(this, pathCacheSize);
 
-    mesh = new boolean[navigationLayer.getHeight()][navigationLayer.getWidth()];
+    wordsPerRow = (width + 2 + Long.SIZE - 1) / Long.SIZE;
+    mesh = new long[wordsPerRow * height];
 
     for (int y = 0; y < navigationLayer.getHeight(); y++) {
       for (int x = 0; x < navigationLayer.getWidth(); x++) {
@@ -46,18 +122,159 @@ public class NavigationMesh {
         setCell(x, y, currentCell == null ? false : true);
       }
     }
+    search = createSearch(searchMode);
+  }
+
+  /**
+   * Create a new search object for this mesh that uses the given algorithm.
+   *
+   * @param mode The algorithm the search should use
+   *
+   * @return A {@link PathFinder} over this mesh
+   * */
+  public PathFinder createSearch(SearchModes mode) {
+    switch (mode) {
+      case JUMP_POINT:
+        return new JumpPointSearch(this);
+      case HIERARCHICAL:
+        return new HierarchicalSearch(this, getClusterGraph());
+      case INCREMENTAL:
+        return new IncrementalSearch(this);
+      case OCTILE:
+        return new OctileSearch(this);
+      case GDX_AI:
+        return new GdxAiPathFinder(this);
+      case REGION:
+        return new RegionSearch(this, getRegionGraph());
+      case A_STAR:
+      default:
+        return new AStarSearch(this);
+    }
+  }
+
+  /**
+   * Build a {@link FlowField} towards the tile at the given world coordinates. Paths to that tile
+   * will then be read from the field rather than searched for.
+   *
+   * @param x The x coordinate of the destination in the game world
+   * @param y The y coordinate of the destination in the game world
+   * */
+  public void addFlowField(float x, float y) {
+    int destination = getCellIndex((int) x / navigationLayer.getTileWidth(),
+                                   (int) y / navigationLayer.getTileHeight());
+    if (!flowFields.containsKey(destination)) {
+      flowFields.put(destination, new FlowField(this, destination));
+    }
+  }
+
+  /**
+   * Drop the {@link FlowField} towards the tile at the given world coordinates, if there is one.
+   *
+   * @param x The x coordinate of the destination in the game world
+   * @param y The y coordinate of the destination in the game world
+   * */
+  public void removeFlowField(float x, float y) {
+    flowFields.remove(getCellIndex((int) x / navigationLayer.getTileWidth(),
+                                   (int) y / navigationLayer.getTileHeight()));
+  }
+
+  /**
+   * Return the {@link ClusterGraph} used by hierarchical searches of this mesh, creating it if
+   * it hasn't been used yet.
+   *
+   * @return The mesh's cluster graph
+   * */
+  public ClusterGraph getClusterGraph() {
+    if (clusterGraph == null) {
+      clusterGraph = new ClusterGraph(this, ClusterGraph.DEFAULT_CLUSTER_SIZE);
+    }
+    return clusterGraph;
+  }
+
+  /**
+   * Return the {@link RegionGraph} used by region searches of this mesh, creating it if it hasn't
+   * been used yet.
+   *
+   * @return The mesh's region graph
+   * */
+  public RegionGraph getRegionGraph() {
+    if (regionGraph == null) {
+      regionGraph = new RegionGraph(this);
+    }
+    return regionGraph;
+  }
+
+  /**
+   * Load the {@link NextHopTable} for this mesh from a cache file, building and writing it first
+   * if needed. Until a cell of the mesh is set, paths will then be read from the table rather
+   * than searched for.
+   *
+   * @param file The file the table is cached in
+   * @throws IOException Thrown if the file can't be read or written
+   * */
+  public void loadNextHopTable(File file) throws IOException {
+    nextHops = NextHopTable.load(this, file);
+  }
+
+  public NextHopTable getNextHopTable() {
+    return nextHops;
+  }
+
+  public PathCache getPathCache() {
+    return pathCache;
+  }
+
+  public SearchModes getSearchMode() {
+    return searchMode;
+  }
+
+  /**
+   * Change the algorithm used to generate paths across the mesh. Cached paths were found by the
+   * previous algorithm, so the cache is cleared.
+   *
+   * @param mode The algorithm to use
+   * */
+  public void setSearchMode(SearchModes mode) {
+    if (mode != searchMode) {
+      searchMode = mode;
+      search = createSearch(mode);
+      pathCache.clear();
+    }
   }
 
   /**
-   * Setter for the {@link NavigationMesh#mesh} variable that flips the x and y values
-   * so that the x and y values don't need to be flipped when accessing the array.
+   * Setter for the bit of {@link NavigationMesh#mesh} representing a cell.
    *
    * @param x The x coordinate of the cell to set
    * @param y The y coordinate of the cell to set
    * @param value The value to set the cell to
+   * @throws IllegalArgumentException Thrown if the cell is outside of the mesh
    * */
   public void setCell(int x, int y, boolean value) {
-    mesh[y][x] = value;
+    if (!cellInBounds(x, y)) {
+      throw new IllegalArgumentException("Cell must be within the navigation mesh");
+    }
+    int word = y * wordsPerRow + ((x + 1) >>> 6);
+    long bit = 1L << (x + 1);
+    if (value) {
+      mesh[word] |= bit;
+    } else {
+      mesh[word] &= ~bit;
+    }
+    synchronized (changeLog) {
+      version++;
+      changeLog[version % CHANGE_LOG_SIZE] = getCellIndex(x, y);
+    }
+    for (FlowField flowField : flowFields.values()) {
+      flowField.invalidate();
+    }
+    pathCache.invalidate(x, y, value);
+    if (clusterGraph != null) {
+      clusterGraph.invalidate();
+    }
+    if (regionGraph != null) {
+      regionGraph.invalidate();
+    }
   }
 
   /**
@@ -70,7 +287,174 @@ public class NavigationMesh {
    * @return A boolean representing whether the chosen cell is accessible
    * */
   public boolean cellAccessible(int x, int y) {
-    return mesh[y][x];
+    return (mesh[y * wordsPerRow + ((x + 1) >>> 6)] & (1L << (x + 1))) != 0;
+  }
+
+  /**
+   * Return a number that changes every time a cell of the mesh is set. Paths worked out against
+   * one version of the mesh may not be valid for another.
+   *
+   * @return The current version of the mesh
+   * */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Find the cells that have been set since a given version of the mesh.
+   *
+   * @param sinceVersion The version of the mesh to list changes from
+   * @param cells The array to write the indices of the changed cells to, oldest first. A cell is
+   *              listed once for every time it was set
+   *
+   * @return Whether the changes could be listed, false if too many cells have been set since that
+   *         version for them all to be remembered
+   * */
+  public boolean getChangesSince(int sinceVersion, IntArray cells) {
+    cells.clear();
+    synchronized (changeLog) {
+      if (version - sinceVersion > CHANGE_LOG_SIZE || sinceVersion > version) {
+        return false;
+      }
+      for (int changed = sinceVersion + 1; changed <= version; changed++) {
+        cells.add(changeLog[changed % CHANGE_LOG_SIZE]);
+      }
+    }
+    return true;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getCellCount() {
+    return width * height;
+  }
+
+  /**
+   * Pack a pair of tilemap coordinates into a single cell index. Searches work with these
+   * indices so that per-cell state can be kept in flat arrays.
+   *
+   * @param x The x coordinate of the cell
+   * @param y The y coordinate of the cell
+   *
+   * @return The index of the cell
+   * */
+  public int getCellIndex(int x, int y) {
+    return y * width + x;
+  }
+
+  /**
+   * Return the index of the cell containing a point in the game world.
+   *
+   * @param x The x coordinate in the game world
+   * @param y The y coordinate in the game world
+   *
+   * @return The index of the cell, or -1 if the point is outside of the mesh
+   * */
+  public int getCellIndexAt(float x, float y) {
+    int cellX = (int) x / navigationLayer.getTileWidth();
+    int cellY = (int) y / navigationLayer.getTileHeight();
+    return cellInBounds(cellX, cellY) ? getCellIndex(cellX, cellY) : -1;
+  }
+
+  public int getCellX(int index) {
+    return index % width;
+  }
+
+  public int getCellY(int index) {
+    return index / width;
+  }
+
+  public boolean cellInBounds(int x, int y) {
+    return x >= 0 && x < width && y >= 0 && y < height;
+  }
+
+  /**
+   * Check whether a cell can be stepped onto. Cells on the edge of the mesh are never
+   * considered, which also means the neighbours of any cell that can be stepped onto are always
+   * within the bounds of the mesh.
+   *
+   * @param x The x coordinate to test
+   * @param y The y coordinate to test
+   *
+   * @return A boolean representing whether an NPC can move onto the cell
+   * */
+  public boolean cellTraversable(int x, int y) {
+    return x > 0 && x < width - 1 && y > 0 && y < height - 1 && cellAccessible(x, y);
+  }
+
+  /**
+   * Return the moves that can be made from a cell as a bitmask. Bit n is set if the cell offset
+   * by ({@link NavigationMesh#NEIGHBOUR_OFFSETS_X}[n], {@link NavigationMesh#NEIGHBOUR_OFFSETS_Y}
+   * [n]) can be moved to, following the same rules as
+   * {@link NavigationMesh#getSuccessorNodes(PathNode, int[])}.
+   *
+   * @param x The x coordinate of the cell to move from
+   * @param y The y coordinate of the cell to move from
+   *
+   * @return A bitmask of the possible moves
+   * */
+  public int getSuccessorMask(int x, int y) {
+    int middle = getRowBits(x, y);
+    int below = getRowBits(x, y - 1);
+    int above = getRowBits(x, y + 1);
+
+    // Only cells away from the edge of the mesh can be moved to
+    int columns = 0b111;
+    if (x <= 1) {
+      columns &= 0b110;
+    }
+    if (x <= 0 || x >= width - 1) {
+      columns &= 0b101;
+    }
+    if (x >= width - 2) {
+      columns &= 0b011;
+    }
+    int traversableMiddle = y > 0 && y < height - 1 ? middle & columns : 0;
+    int traversableBelow = y > 1 ? below & columns : 0;
+    int traversableAbove = y < height - 2 ? above & columns : 0;
+
+    int mask = (traversableBelow >>> 1 & 1)
+        | (traversableMiddle & 1) << 1
+        | (traversableMiddle >>> 2 & 1) << 2
+        | (traversableAbove >>> 1 & 1) << 3;
+    // Both orthogonal cells must be free to make a diagonal move, see getSuccessorNodes. Bits 0
+    // and 2 of these are the moves to the left and right, if the cell below or above is free
+    int diagonalsBelow = traversableBelow & middle & -(below >>> 1 & 1);
+    int diagonalsAbove = traversableAbove & middle & -(above >>> 1 & 1);
+    return mask
+        | (diagonalsBelow & 1) << 4
+        | (diagonalsBelow & 0b100) << 3
+        | (diagonalsAbove & 1) << 6
+        | (diagonalsAbove & 0b100) << 5;
+  }
+
+  /**
+   * Read the accessibility of a cell and the cells either side of it in a single operation.
+   *
+   * @param x The x coordinate of the middle cell
+   * @param y The y coordinate of the row to read
+   *
+   * @return A 3 bit number, bit 0 set if cell x - 1 is accessible, bit 1 for cell x and bit 2
+   *         for cell x + 1. Cells outside of the mesh are never accessible
+   * */
+  private int getRowBits(int x, int y) {
+    if (y < 0 || y >= height || x < 0 || x >= width) {
+      return 0;
+    }
+    // Cell x - 1 is stored at bit x of the row
+    int word = y * wordsPerRow + (x >>> 6);
+    int offset = x & 63;
+    long bits = mesh[word] >>> offset;
+    if (offset > Long.SIZE - 3) {
+      bits |= mesh[word + 1] << (Long.SIZE - offset);
+    }
+    return (int) bits & 0b111;
   }
 
   /**
@@ -86,6 +470,26 @@ public class NavigationMesh {
                        (float) y * navigationLayer.getTileHeight());
   }
 
+  /**
+   * Return the x coordinate of the bottom left corner of a cell in the game world.
+   *
+   * @param cell The index of the cell
+   * @return The x coordinate in the game world
+   * */
+  public float getCellWorldX(int cell) {
+    return getCellX(cell) * navigationLayer.getTileWidth();
+  }
+
+  /**
+   * Return the y coordinate of the bottom left corner of a cell in the game world.
+   *
+   * @param cell The index of the cell
+   * @return The y coordinate in the game world
+   * */
+  public float getCellWorldY(int cell) {
+    return getCellY(cell) * navigationLayer.getTileHeight();
+  }
+
   public int[] getTilemapCoordinates(float x, float y) {
     return new int[] {(int) Math.floor(x / navigationLayer.getTileWidth()),
                       (int) Math.floor(y / navigationLayer.getTileHeight())};
@@ -100,48 +504,22 @@ public class NavigationMesh {
    * @return An {@link ArrayList} of {@link PathNode}s of possible moves that the npc could make
    * */
   public ArrayList<PathNode> getSuccessorNodes(PathNode node, int[] destination) {
-    int[][] surroundingCoordinates = {
-        {0, -1},
-        {-1, 0}, {1, 0},
-        {0, 1}
-      };
-
-    int[][] diagonalCoordinates = {
-        {-1, -1}, {1, -1},
-        {-1, 1}, {1, 1}
-      };
-
     ArrayList<PathNode> output = new ArrayList<>();
-    for (int[] coordinates : surroundingCoordinates) {
-      int targetX = node.position[0] + coordinates[0];
-      int targetY = node.position[1] + coordinates[1];
-
-      if (targetX > 0 && targetX < mesh[0].length - 1
-          && targetY > 0 && targetY < mesh.length - 1
-          && cellAccessible(targetX, targetY)) {
-        output.add(new PathNode(new int[] {targetX, targetY}, node, destination));
-      }
-    }
-    for (int[] coordinates : diagonalCoordinates) {
-      int targetX = node.position[0] + coordinates[0];
-      int targetY = node.position[1] + coordinates[1];
-
-      // Coordinates of cells that must also be empty to make a diagonal move.
-      // Example:
-      // -------
-      // | |A|T|  To make a move to target cell T,
-      // -------  cells A and B must both be free.
-      // | |.|B|
-      // -------
-      // | | | |
-      // -------
-
-      if (targetX > 0 && targetX < mesh[0].length - 1
-          && targetY > 0 && targetY < mesh.length - 1
-          && cellAccessible(targetX, targetY)
-          && cellAccessible(node.position[0], targetY)
-          && cellAccessible(targetX, node.position[1])) {
-        output.add(new PathNode(new int[] {targetX, targetY}, node, destination));
+    // Coordinates of cells that must also be empty to make a diagonal move.
+    // Example:
+    // -------
+    // | |A|T|  To make a move to target cell T,
+    // -------  cells A and B must both be free.
+    // | |.|B|
+    // -------
+    // | | | |
+    // -------
+    int successors = getSuccessorMask(node.position[0], node.position[1]);
+    for (int direction = 0; successors != 0; direction++, successors >>>= 1) {
+      if ((successors & 1) != 0) {
+        output.add(new PathNode(new int[] {node.position[0] + NEIGHBOUR_OFFSETS_X[direction],
+                                           node.position[1] + NEIGHBOUR_OFFSETS_Y[direction]},
+                                node, destination));
       }
     }
     return output;
@@ -154,42 +532,116 @@ public class NavigationMesh {
    * @param destination The point to pathfind to
    *
    * @return An {@link ArrayList} of points representing a path between the 2 given coordinates
+   * @throws IllegalArgumentException Thrown if the points are outside of the mesh or no path
+   *         between them exists
    * */
   public ArrayList<int[]> generateTilemapPathToPoint(final int[] start, final int[] destination) {
-    ArrayList<int[]> path = new ArrayList<>();
+    if (!cellInBounds(start[0], start[1]) || !cellInBounds(destination[0], destination[1])) {
+      throw new IllegalArgumentException("Both points must be within the navigation mesh");
+    }
+    TilePath tilePath = getTilePath(getCellIndex(start[0], start[1]),
+                                    getCellIndex(destination[0], destination[1]));
 
-    PathNode startNode = new PathNode(start, null, destination);
+    ArrayList<int[]> path = new ArrayList<>(tilePath.getLength());
+    for (int i = 0; i < tilePath.getLength(); i++) {
+      int cell = tilePath.getCell(i);
+      path.add(new int[] {getCellX(cell), getCellY(cell)});
+    }
+    return path;
+  }
 
-    Comparator<PathNode> distanceComparator = new Comparator<PathNode>() {
-      @Override
-      public int compare(PathNode firstPoint, PathNode secondPoint) {
-        return (int) (firstPoint.heuristic * 1000) - (int) (secondPoint.heuristic * 1000);
-      }
-    };
-
-    PriorityQueue<PathNode> openNodes = new PriorityQueue<>(distanceComparator);
-    openNodes.add(startNode);
-
-    ArrayList<PathNode> closedNodes = new ArrayList<>();
-
-    while (!openNodes.isEmpty()) {
-      PathNode currentNode = openNodes.remove();
-      ArrayList<PathNode> successorNodes = getSuccessorNodes(currentNode, destination);
-      for (PathNode successor : successorNodes) {
-        if (Arrays.equals(successor.position, destination)) {
-          while (successor.parent != null) {
-            path.add(successor.position);
-            successor = successor.parent;
-          }
-          Collections.reverse(path);
-          return path;
-        } else if (!closedNodes.contains(successor) && !openNodes.contains(successor)) {
-          openNodes.add(successor);
-        }
+  /**
+   * Return a path between two cells, from the path cache if possible. Otherwise the path is read
+   * from the {@link NextHopTable} or a {@link FlowField}, or searched for, then cached.
+   *
+   * @param start The index of the cell to start from
+   * @param destination The index of the cell to find a path to
+   *
+   * @return A {@link TilePath} between the 2 cells, which may be shared with other callers
+   * @throws IllegalArgumentException Thrown if no path between the cells exists
+   * */
+  public TilePath getTilePath(int start, int destination) {
+    TilePath path = getPrecomputedTilePath(start, destination);
+    if (path == null) {
+      if (!search.findPath(start, destination, searchPath)) {
+        throw new IllegalArgumentException("No path between the 2 given points could be found");
       }
-      closedNodes.add(currentNode);
+      path = new TilePath(start, searchPath);
+      pathCache.put(path);
+    }
+    return path;
+  }
+
+  /**
+   * Return a path between two cells if it can be found without searching, either because it is
+   * in the path cache or because it can be read from the {@link NextHopTable} or a
+   * {@link FlowField} towards the destination.
+   *
+   * @param start The index of the cell to start from
+   * @param destination The index of the cell to find a path to
+   *
+   * @return A {@link TilePath} between the 2 cells, or null if one would have to be searched for
+   * */
+  public TilePath getPrecomputedTilePath(int start, int destination) {
+    TilePath path = pathCache.get(start, destination);
+    if (path == null && (followNextHops(start, destination, searchPath)
+        || followFlowField(start, destination, searchPath))) {
+      path = new TilePath(start, searchPath);
+      pathCache.put(path);
     }
-    throw new IllegalArgumentException("No path between the 2 given points could be found");
+    return path;
+  }
+
+  /**
+   * Read a path from the {@link NextHopTable}, if one has been loaded and is still current.
+   *
+   * @param start The index of the cell to start from
+   * @param destination The index of the cell to find a path to
+   * @param path The array to write the path to, in the same format as
+   *             {@link PathFinder#findPath(int, int, IntArray)}
+   *
+   * @return Whether a path could be read from the table
+   * */
+  private boolean followNextHops(int start, int destination, IntArray path) {
+    if (nextHops == null || !nextHops.isCurrent() || searchMode == SearchModes.OCTILE
+        || start == destination || nextHops.getNextCell(start, destination) == -1) {
+      // Like flow fields, the table counts every move the same
+      return false;
+    }
+    path.clear();
+    for (int cell = start; cell != destination; ) {
+      cell = nextHops.getNextCell(cell, destination);
+      path.add(cell);
+    }
+    return true;
+  }
+
+  /**
+   * Read a path from the {@link FlowField} towards the destination, if one has been built.
+   *
+   * @param start The index of the cell to start from
+   * @param destination The index of the cell to find a path to
+   * @param path The array to write the path to, in the same format as
+   *             {@link PathFinder#findPath(int, int, IntArray)}
+   *
+   * @return Whether a path could be read from a flow field
+   * */
+  private boolean followFlowField(int start, int destination, IntArray path) {
+    if (searchMode == SearchModes.OCTILE) {
+      // Flow fields count every move the same, so they don't give the shortest octile paths
+      return false;
+    }
+    FlowField flowField = flowFields.get(destination);
+    if (flowField == null || flowField.getNextCell(start) == -1) {
+      return false;
+    }
+    path.clear();
+    int cell = start;
+    while (cell != destination) {
+      cell = flowField.getNextCell(cell);
+      path.add(cell);
+    }
+    return true;
   }
 
   /**
@@ -221,28 +673,23 @@ public class NavigationMesh {
   }
 
   /**
-   * Get the coordinates of the furthest point from the given entity.
+   * Convert a {@link TilePath} into a path in terms of real world coordinates, ending at the
+   * given destination.
    *
-   * @param entity The entity to find the furthest point from
-   * @return The world coordinates of the furthest point from this entity
+   * @param path The path to convert
+   * @param destination A {@link Vector2} representing the end position
+   *
+   * @return An {@link ArrayList} of {@link Vector2}s that represent the path
    * */
-  public Vector2 getFurthestPointFromEntity(GameEntity entity) {
-    int[] tileCoordinates = getTilemapCoordinates(entity.position.x, entity.position.y);
-    float longestDistance = 0;
-    int[] longestDistanceCoordinates = {0, 0};
-    for (int y = 0; y < mesh.length; y++) {
-      for (int x = 0; x < mesh[0].length; x++) {
-        if (cellAccessible(x, y)) {
-          int[] currentCellCoords = {x, y};
-          float distance = getEuclidianDistance(tileCoordinates, currentCellCoords);
-          if (distance > longestDistance) {
-            longestDistance = distance;
-            longestDistanceCoordinates = currentCellCoords;
-          }
-        }
-      }
+  public ArrayList<Vector2> generateWorldPath(TilePath path, Vector2 destination) {
+    ArrayList<Vector2> worldPath = new ArrayList<>(path.getLength() + 1);
+    for (int i = 0; i < path.getLength(); i++) {
+      int cell = path.getCell(i);
+      worldPath.add(new Vector2(getCellX(cell) * navigationLayer.getTileWidth(),
+                                getCellY(cell) * navigationLayer.getTileHeight()));
     }
-    return getWorldCoordinates(longestDistanceCoordinates[0], longestDistanceCoordinates[1]);
+    worldPath.add(destination);
+    return worldPath;
   }
 
   /**
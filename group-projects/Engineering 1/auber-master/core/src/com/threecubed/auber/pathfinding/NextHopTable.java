@@ -0,0 +1,293 @@
+package com.threecubed.auber.pathfinding;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+
+/**
+ * A table of the first move along a shortest path between every pair of traversable cells of a
+ * {@link NavigationMesh}. It works like a {@link FlowField} towards every cell at once, so any
+ * path can be read from it one move at a time without searching.
+ *
+ * <p>Each move is stored as a single byte, the index of its direction in
+ * {@link NavigationMesh#NEIGHBOUR_OFFSETS_X} and {@link NavigationMesh#NEIGHBOUR_OFFSETS_Y}. The
+ * table is built with a breadth-first search from each destination, spread across every core,
+ * and kept in a memory-mapped file so later launches can map it rather than build it again.
+ *
+ * <p>The table describes the mesh as it was when the table was loaded. Once a cell of the mesh
+ * is set it is out of date for good, see {@link NextHopTable#isCurrent()}, and paths are searched
+ * for instead until a table is loaded again. The game never sets a cell once the mesh is built,
+ * so it never reloads the table.
+ *
+ * <p>Java can't release a mapped file on demand, so the mapping is only released once the table
+ * has been garbage collected. Each world loads its own table, so a second mapping of the file can
+ * exist alongside the last world's until that happens.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class NextHopTable {
+  /** The first bytes of a table file, "NHOP". */
+  private static final int MAGIC = 0x4e484f50;
+  /** Changed whenever the layout of the file changes, so old files are rebuilt. */
+  private static final int FORMAT_VERSION = 1;
+  /** The magic number, format version, cell count, traversable cell count and mesh hash. */
+  private static final int HEADER_SIZE = 24;
+  /**
+   * The largest table file that can be mapped, since a buffer is indexed by an int. This is
+   * reached with a little over 46,000 traversable cells.
+   * */
+  private static final long MAX_FILE_SIZE = Integer.MAX_VALUE;
+  /** Stored for pairs of cells that can't reach each other. */
+  private static final byte NO_MOVE = -1;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final NavigationMesh mesh;
+  private final int meshVersion;
+  /** The row and column of each cell in the table, or -1 for cells that aren't traversable. */
+  private final int[] cellSlots;
+  private final int[] slotCells;
+  private final ByteBuffer moves;
+
+  private NextHopTable(NavigationMesh mesh, int[] cellSlots, int[] slotCells, ByteBuffer moves) {
+    this.mesh = mesh;
+    this.cellSlots = cellSlots;
+    this.slotCells = slotCells;
+    this.moves = moves;
+    meshVersion = mesh.getVersion();
+  }
+
+  /**
+   * Map the table for a mesh from a file, building it and writing it to the file first if the
+   * file doesn't hold a table for the mesh as it is now.
+   *
+   * @param mesh The mesh to load the table for
+   * @param file The file the table is cached in
+   *
+   * @return The table for the mesh
+   * @throws IOException Thrown if the file can't be read or written, building the table failed,
+   *                     or the mesh has too many traversable cells for the table to fit in a file
+   *                     that can be mapped. A table that couldn't be built is deleted
+   * */
+  public static NextHopTable load(NavigationMesh mesh, File file) throws IOException {
+    int[] cellSlots = new int[mesh.getCellCount()];
+    int slotCount = 0;
+    for (int cell = 0; cell < cellSlots.length; cell++) {
+      cellSlots[cell] = mesh.cellTraversable(mesh.getCellX(cell), mesh.getCellY(cell))
+          ? slotCount++ : -1;
+    }
+    int[] slotCells = new int[slotCount];
+    for (int cell = 0; cell < cellSlots.length; cell++) {
+      if (cellSlots[cell] != -1) {
+        slotCells[cellSlots[cell]] = cell;
+      }
+    }
+    long meshHash = hashMesh(mesh, slotCells);
+    long fileSize = HEADER_SIZE + (long) slotCount * slotCount;
+    if (fileSize > MAX_FILE_SIZE) {
+      throw new IOException("A next-hop table for " + slotCount + " traversable cells would take "
+          + fileSize + " bytes, more than can be mapped");
+    }
+
+    if (file.length() == fileSize) {
+      try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+        MappedByteBuffer buffer = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+            fileSize);
+        if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == FORMAT_VERSION
+            && buffer.getInt(8) == cellSlots.length && buffer.getInt(12) == slotCount
+            && buffer.getLong(16) == meshHash) {
+          return new NextHopTable(mesh, cellSlots, slotCells, buffer);
+        }
+      }
+    }
+
+    File directory = file.getAbsoluteFile().getParentFile();
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Couldn't create the directory " + directory);
+    }
+    boolean built = false;
+    try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+      output.setLength(fileSize);
+      MappedByteBuffer buffer = output.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+          fileSize);
+      build(mesh, cellSlots, slotCells, buffer);
+      // The header is written last, so a table that was never finished is never mapped
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, FORMAT_VERSION);
+      buffer.putInt(8, cellSlots.length);
+      buffer.putInt(12, slotCount);
+      buffer.putLong(16, meshHash);
+      buffer.force();
+      built = true;
+      return new NextHopTable(mesh, cellSlots, slotCells, buffer);
+    } finally {
+      if (!built) {
+        file.delete();
+      }
+    }
+  }
+
+  /**
+   * Return the name to cache the table for a map under, made from a hash of the map file so
+   * tables for different versions of the map don't get mixed up.
+   *
+   * @param mapFile The contents of the map file
+   * @return The name of the file to cache the table in
+   * */
+  public static String getCacheFileName(byte[] mapFile) {
+    long hash = FNV_OFFSET_BASIS;
+    for (byte value : mapFile) {
+      hash = (hash ^ (value & 0xff)) * FNV_PRIME;
+    }
+    return String.format("nexthop-%016x.bin", hash);
+  }
+
+  /**
+   * Check whether the table still describes the mesh, which it stops doing as soon as any cell
+   * of the mesh is set.
+   *
+   * @return Whether paths read from the table are still valid
+   * */
+  public boolean isCurrent() {
+    return mesh.getVersion() == meshVersion;
+  }
+
+  /**
+   * Return the cell to move to next from a given cell to reach a destination.
+   *
+   * @param cell The index of the cell to move from
+   * @param destination The index of the cell to reach
+   * @return The index of the next cell on a shortest path to the destination, or -1 if there is
+   *         no such path or the cells are the same
+   * */
+  public int getNextCell(int cell, int destination) {
+    int slot = cellSlots[cell];
+    int destinationSlot = cellSlots[destination];
+    if (slot == -1 || destinationSlot == -1) {
+      return -1;
+    }
+    // Tables are never larger than MAX_FILE_SIZE, so the offset fits in an int once worked out
+    int direction = moves.get((int) (HEADER_SIZE + (long) destinationSlot * slotCells.length
+        + slot));
+    if (direction == NO_MOVE) {
+      return -1;
+    }
+    return mesh.getCellIndex(mesh.getCellX(cell) + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+                             mesh.getCellY(cell) + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction]);
+  }
+
+  /**
+   * Fill in the moves of the table, one row per destination, with the rows shared out between a
+   * thread for each core.
+   *
+   * @throws IOException Thrown if any of the threads failed, or this thread was interrupted while
+   *                     waiting for them
+   * */
+  private static void build(final NavigationMesh mesh, final int[] cellSlots,
+      final int[] slotCells, final ByteBuffer buffer) throws IOException {
+    final int threadCount = Math.min(Runtime.getRuntime().availableProcessors(),
+        Math.max(slotCells.length, 1));
+    Thread[] threads = new Thread[threadCount];
+    // What each thread threw, only read once the threads have been joined
+    final Throwable[] failures = new Throwable[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      final int firstRow = i;
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            ByteBuffer rows = buffer.duplicate();
+            byte[] row = new byte[slotCells.length];
+            int[] queue = new int[slotCells.length];
+            for (int slot = firstRow; slot < slotCells.length; slot += threadCount) {
+              buildRow(mesh, cellSlots, slotCells[slot], row, queue);
+              rows.position((int) (HEADER_SIZE + (long) slot * slotCells.length));
+              rows.put(row);
+            }
+          } catch (Throwable failure) {
+            failures[firstRow] = failure;
+          }
+        }
+      }, "Next-hop table builder " + i);
+      threads[i].start();
+    }
+    try {
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while building the next-hop table", exception);
+    }
+    for (Throwable failure : failures) {
+      if (failure != null) {
+        throw new IOException("Building the next-hop table failed", failure);
+      }
+    }
+  }
+
+  /**
+   * Work out the first move from every cell towards a destination with a breadth-first search
+   * outwards from it, like {@link FlowField#rebuild()}.
+   *
+   * @param destination The index of the destination cell
+   * @param row The array to write the move from each traversable cell to
+   * @param queue A scratch array with room for every traversable cell
+   * */
+  private static void buildRow(NavigationMesh mesh, int[] cellSlots, int destination, byte[] row,
+      int[] queue) {
+    Arrays.fill(row, NO_MOVE);
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = destination;
+
+    while (head < tail) {
+      int current = queue[head++];
+      int x = mesh.getCellX(current);
+      int y = mesh.getCellY(current);
+      // Moves are symmetric, so any cell that can be moved to from here can also move back
+      int neighbours = mesh.getSuccessorMask(x, y);
+      for (int direction = 0; neighbours != 0; direction++, neighbours >>>= 1) {
+        if ((neighbours & 1) == 0) {
+          continue;
+        }
+        int neighbour = mesh.getCellIndex(x + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+                                          y + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction]);
+        int slot = cellSlots[neighbour];
+        if (neighbour != destination && row[slot] == NO_MOVE) {
+          row[slot] = getOppositeDirection(direction);
+          queue[tail++] = neighbour;
+        }
+      }
+    }
+  }
+
+  /**
+   * Return the direction that undoes a move. Directions 0 to 3 are below, left, right and above,
+   * and 4 to 7 the diagonals in the same order.
+   * */
+  private static byte getOppositeDirection(int direction) {
+    return (byte) (direction < 4 ? 3 - direction : 11 - direction);
+  }
+
+  /**
+   * Hash the size of the mesh and the positions of its traversable cells, so a table built for
+   * a different mesh is never mapped by mistake.
+   * */
+  private static long hashMesh(NavigationMesh mesh, int[] slotCells) {
+    long hash = FNV_OFFSET_BASIS;
+    hash = (hash ^ mesh.getWidth()) * FNV_PRIME;
+    hash = (hash ^ mesh.getHeight()) * FNV_PRIME;
+    for (int cell : slotCells) {
+      hash = (hash ^ cell) * FNV_PRIME;
+    }
+    return hash;
+  }
+}
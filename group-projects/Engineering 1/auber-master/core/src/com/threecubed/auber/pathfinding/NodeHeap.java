@@ -0,0 +1,206 @@
+package com.threecubed.auber.pathfinding;
+
+import java.util.Arrays;
+
+
+/**
+ * A binary min-heap of cell indices used as the open set of the pathfinding searches.
+ * Priorities and heap positions are stored in arrays indexed by cell, which allows a cell's
+ * priority to be changed in place and means the heap never allocates once it has been created.
+ * Nodes with equal priorities are ordered by a second, tie-breaking priority.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class NodeHeap {
+  private final int[] heap;
+  private final int[] positions;
+  private final float[] priorities;
+  private final float[] tieBreaks;
+  private int size = 0;
+
+  /**
+   * Create a heap able to hold every cell of a mesh.
+   *
+   * @param capacity The number of cells in the mesh
+   * */
+  public NodeHeap(int capacity) {
+    heap = new int[capacity];
+    positions = new int[capacity];
+    priorities = new float[capacity];
+    tieBreaks = new float[capacity];
+    Arrays.fill(positions, -1);
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean contains(int node) {
+    return positions[node] != -1;
+  }
+
+  /**
+   * Remove every node from the heap.
+   * */
+  public void clear() {
+    for (int i = 0; i < size; i++) {
+      positions[heap[i]] = -1;
+    }
+    size = 0;
+  }
+
+  /**
+   * Add a node to the heap, or lower its priority if it is already present.
+   *
+   * @param node The cell index to add
+   * @param priority The priority of the node, lower values are removed first
+   * */
+  public void add(int node, float priority) {
+    add(node, priority, 0);
+  }
+
+  /**
+   * Add a node to the heap, or lower its priority if it is already present.
+   *
+   * @param node The cell index to add
+   * @param priority The priority of the node, lower values are removed first
+   * @param tieBreak The priority used to order nodes with the same main priority
+   * */
+  public void add(int node, float priority, float tieBreak) {
+    if (contains(node)) {
+      if (before(priority, tieBreak, node)) {
+        priorities[node] = priority;
+        tieBreaks[node] = tieBreak;
+        siftUp(positions[node]);
+      }
+      return;
+    }
+    priorities[node] = priority;
+    tieBreaks[node] = tieBreak;
+    heap[size] = node;
+    positions[node] = size;
+    siftUp(size++);
+  }
+
+  /**
+   * Change the priority of a node already in the heap, whether it goes up or down.
+   *
+   * @param node The cell index to change the priority of
+   * @param priority The new priority of the node
+   * @param tieBreak The new tie-breaking priority of the node
+   * */
+  public void update(int node, float priority, float tieBreak) {
+    if (!contains(node)) {
+      throw new IllegalArgumentException("Node " + node + " is not in the heap");
+    }
+    priorities[node] = priority;
+    tieBreaks[node] = tieBreak;
+    siftUp(positions[node]);
+    siftDown(positions[node]);
+  }
+
+  /**
+   * Remove a node from anywhere in the heap.
+   *
+   * @param node The cell index to remove, nothing happens if it isn't in the heap
+   * */
+  public void remove(int node) {
+    int index = positions[node];
+    if (index == -1) {
+      return;
+    }
+    positions[node] = -1;
+    size--;
+    if (index < size) {
+      int moved = heap[size];
+      heap[index] = moved;
+      positions[moved] = index;
+      siftUp(index);
+      siftDown(positions[moved]);
+    }
+  }
+
+  /**
+   * Return the node with the lowest priority without removing it.
+   *
+   * @return The cell index with the lowest priority
+   * */
+  public int peek() {
+    return heap[0];
+  }
+
+  public float getPriority(int node) {
+    return priorities[node];
+  }
+
+  public float getTieBreak(int node) {
+    return tieBreaks[node];
+  }
+
+  /**
+   * Remove and return the node with the lowest priority.
+   *
+   * @return The cell index with the lowest priority
+   * */
+  public int poll() {
+    int node = heap[0];
+    positions[node] = -1;
+    size--;
+    if (size > 0) {
+      heap[0] = heap[size];
+      positions[heap[0]] = 0;
+      siftDown(0);
+    }
+    return node;
+  }
+
+  private void siftUp(int index) {
+    int node = heap[index];
+    while (index > 0) {
+      int parentIndex = (index - 1) >>> 1;
+      int parent = heap[parentIndex];
+      if (!before(priorities[node], tieBreaks[node], parent)) {
+        break;
+      }
+      heap[index] = parent;
+      positions[parent] = index;
+      index = parentIndex;
+    }
+    heap[index] = node;
+    positions[node] = index;
+  }
+
+  private void siftDown(int index) {
+    int node = heap[index];
+    int half = size >>> 1;
+    while (index < half) {
+      int childIndex = (index << 1) + 1;
+      int child = heap[childIndex];
+      int rightIndex = childIndex + 1;
+      int right = rightIndex < size ? heap[rightIndex] : -1;
+      if (right != -1 && before(priorities[right], tieBreaks[right], child)) {
+        childIndex = rightIndex;
+        child = heap[childIndex];
+      }
+      if (!before(priorities[child], tieBreaks[child], node)) {
+        break;
+      }
+      heap[index] = child;
+      positions[child] = index;
+      index = childIndex;
+    }
+    heap[index] = node;
+    positions[node] = index;
+  }
+
+  /**
+   * Check whether a pair of priorities should be removed from the heap before a node.
+   *
+   * @return Whether the priorities come strictly before those of the node
+   * */
+  private boolean before(float priority, float tieBreak, int node) {
+    return priority < priorities[node]
+        || (priority == priorities[node] && tieBreak < tieBreaks[node]);
+  }
+}
@@ -0,0 +1,80 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.utils.IntArray;
+
+
+/**
+ * An A* search over a {@link NavigationMesh} where a diagonal move costs the square root of two
+ * times an orthogonal one, so the paths it finds are the geometrically shortest ones rather than
+ * those with the fewest moves. Costs are kept in fixed point so they can be stored in the same
+ * integer arrays as the other searches, and the octile heuristic is worked out with the same
+ * fixed point costs so it never overestimates them.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class OctileSearch extends TileSearch {
+  /** The cost of an orthogonal move. */
+  public static final int ORTHOGONAL_COST = 1000;
+  /** The cost of a diagonal move, the square root of two rounded to the same precision. */
+  public static final int DIAGONAL_COST = 1414;
+
+  public OctileSearch(NavigationMesh mesh) {
+    super(mesh);
+  }
+
+  @Override
+  public boolean findPath(int start, int destination, IntArray path) {
+    path.clear();
+    expandedNodes = 0;
+    if (start == destination) {
+      return true;
+    }
+    nextGeneration();
+
+    int destinationX = mesh.getCellX(destination);
+    int destinationY = mesh.getCellY(destination);
+    openStart(start, estimateOctileCost(mesh.getCellX(start), mesh.getCellY(start),
+        destinationX, destinationY));
+
+    while (!openNodes.isEmpty()) {
+      int current = openNodes.poll();
+      if (current == destination) {
+        tracePath(destination, path);
+        return true;
+      }
+      close(current);
+
+      int currentX = mesh.getCellX(current);
+      int currentY = mesh.getCellY(current);
+      int successors = mesh.getSuccessorMask(currentX, currentY);
+
+      for (int direction = 0; successors != 0; direction++, successors >>>= 1) {
+        if ((successors & 1) == 0) {
+          continue;
+        }
+        int successorX = currentX + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction];
+        int successorY = currentY + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction];
+        // The first 4 directions are orthogonal, the rest are diagonal
+        int moveCost = direction < 4 ? ORTHOGONAL_COST : DIAGONAL_COST;
+        relax(mesh.getCellIndex(successorX, successorY), current, pathCosts[current] + moveCost,
+            estimateOctileCost(successorX, successorY, destinationX, destinationY));
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Estimate the cost of moving between two cells as the cost of the shortest route on an empty
+   * grid: as many diagonal moves as possible, then straight moves for the rest of the way.
+   *
+   * @return The estimated cost between the two cells
+   * */
+  protected static int estimateOctileCost(int x, int y, int destinationX, int destinationY) {
+    int distanceX = Math.abs(destinationX - x);
+    int distanceY = Math.abs(destinationY - y);
+    int diagonalMoves = Math.min(distanceX, distanceY);
+    return diagonalMoves * DIAGONAL_COST
+        + (Math.max(distanceX, distanceY) - diagonalMoves) * ORTHOGONAL_COST;
+  }
+}
@@ -0,0 +1,151 @@
+package com.threecubed.auber.pathfinding;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A bounded least-recently-used cache of {@link TilePath}s keyed by their start and destination
+ * cells. NPCs regularly travel between the same pairs of tiles, particularly to and from systems,
+ * so this saves repeating the same searches. The hit, miss and eviction counters can be used to
+ * choose a size for the cache.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class PathCache {
+  private final NavigationMesh mesh;
+  private final LinkedHashMap<Long, TilePath> paths;
+  private int capacity;
+
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /**
+   * Create an empty cache.
+   *
+   * @param mesh The mesh the cached paths are generated on
+   * @param capacity The maximum number of paths to hold, 0 disables the cache
+   * */
+  public PathCache(NavigationMesh mesh, int capacity) {
+    this.mesh = mesh;
+    this.capacity = capacity;
+    // Access order means iteration starts from the least recently used path
+    paths = new LinkedHashMap<Long, TilePath>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, TilePath> eldest) {
+        if (size() > PathCache.this.capacity) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Return the cached path between two cells, counting the lookup as a hit or miss.
+   *
+   * @param start The index of the start cell
+   * @param destination The index of the destination cell
+   *
+   * @return The cached path, or null if there isn't one
+   * */
+  public TilePath get(int start, int destination) {
+    TilePath path = paths.get(getKey(start, destination));
+    if (path == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return path;
+  }
+
+  /**
+   * Add a path to the cache, evicting the least recently used path if the cache is full.
+   *
+   * @param path The path to cache
+   * */
+  public void put(TilePath path) {
+    if (capacity > 0) {
+      paths.put(getKey(path.getStart(), path.getDestination()), path);
+    }
+  }
+
+  /**
+   * Remove the paths that a change to a cell of the mesh could affect. Blocking a cell only
+   * breaks the paths that pass next to or through it, but freeing one could make a shorter route
+   * available to any path, so every path is removed.
+   *
+   * @param x The x coordinate of the cell that changed
+   * @param y The y coordinate of the cell that changed
+   * @param accessible Whether the cell is now accessible
+   * */
+  public void invalidate(int x, int y, boolean accessible) {
+    if (accessible) {
+      paths.clear();
+      return;
+    }
+    Iterator<TilePath> iterator = paths.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().passesNear(mesh, x, y)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  public void clear() {
+    paths.clear();
+  }
+
+  public int size() {
+    return paths.size();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Change the maximum number of paths held, evicting the least recently used paths if the cache
+   * holds more than the new capacity.
+   *
+   * @param capacity The maximum number of paths to hold, 0 disables the cache
+   * */
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+    Iterator<TilePath> iterator = paths.values().iterator();
+    while (paths.size() > capacity) {
+      iterator.next();
+      iterator.remove();
+      evictions++;
+    }
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Reset the hit, miss and eviction counters.
+   * */
+  public void resetCounters() {
+    hits = 0;
+    misses = 0;
+    evictions = 0;
+  }
+
+  private static long getKey(int start, int destination) {
+    return ((long) start << 32) | (destination & 0xffffffffL);
+  }
+}
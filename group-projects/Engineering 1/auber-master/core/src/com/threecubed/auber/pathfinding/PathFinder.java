@@ -0,0 +1,37 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.utils.IntArray;
+
+
+/**
+ * An engine that finds paths between two cells of a {@link NavigationMesh}. Everything that
+ * searches for paths, from the mesh itself to the {@link PathRequestService} workers and NPCs
+ * with their own searches, goes through this interface. The engine used is picked with
+ * {@link NavigationMesh#setSearchMode(NavigationMesh.SearchModes)}, so different engines can be
+ * compared on the same map under the same workload.
+ *
+ * <p>Path finders are not thread safe, each thread that searches should own its own.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public interface PathFinder {
+  /**
+   * Search for a path between two cells.
+   *
+   * @param start The index of the cell to start from
+   * @param destination The index of the cell to find a path to
+   * @param path The array to write the path to. It is cleared, then filled with the cell indices
+   *             along the path, excluding the start and including the destination
+   *
+   * @return Whether a path could be found
+   * */
+  boolean findPath(int start, int destination, IntArray path);
+
+  /**
+   * Return the number of nodes expanded by the last search, for comparing engines.
+   *
+   * @return The number of nodes expanded
+   * */
+  int getExpandedNodes();
+}
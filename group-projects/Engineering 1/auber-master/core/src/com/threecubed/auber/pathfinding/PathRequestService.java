@@ -0,0 +1,389 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.Queue;
+import com.threecubed.auber.pathfinding.AStarSearch.SearchStates;
+import com.threecubed.auber.pathfinding.NavigationMesh.SearchModes;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * Finds paths across a {@link NavigationMesh} on a pool of worker threads, so that searching
+ * doesn't hold up rendering. With no workers it instead searches on the rendering thread a slice
+ * at a time, sharing a fixed number of cell expansions per frame between every outstanding search
+ * so that pathfinding never takes more than a bounded part of a frame. Only {@link AStarSearch}
+ * can be paused part way through a search, so in any other mode a search on the rendering thread
+ * runs to the end in one go and uses up the rest of that frame's budget, which keeps it to one
+ * unbounded search per frame. The game searches on workers by default, see
+ * {@link com.threecubed.auber.World#PATHFINDING_THREADS}.
+ * Paths that don't need a search (cached paths and those read from
+ * flow fields) are found straight away on the calling thread, everything else is queued for the
+ * workers. Either way, results are handed to their {@link PathListener}s the next time
+ * {@link PathRequestService#deliverResults()} is called, which should happen at the start of
+ * each frame.
+ *
+ * <p>Requests for a path between the same two cells that arrive while one is already being
+ * searched for are merged, so a crowd of NPCs fleeing to the same place only costs one search.
+ *
+ * <p>Apart from the workers, the service must only be used from the thread that renders the game,
+ * which is also the only thread that should change the mesh.
+ *
+ * <p>Workers read the mesh and the graphs built over it without any locking, while the rendering
+ * thread may set cells at any time. This race is deliberate: the game itself never sets a cell
+ * once the mesh is built, and copying the mesh for every version would cost more than the
+ * occasional wasted search. A search running across a change may see a mix of old and new
+ * cells, fail, or find a path that is no longer walkable. None of these results are trusted,
+ * since every result is checked against the version of the mesh on delivery and searched for
+ * again if it changed.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class PathRequestService {
+  /** The most searches advanced at once when searching on the rendering thread. */
+  public static final int MAX_SLICED_SEARCHES = 4;
+
+  private final NavigationMesh mesh;
+  private final ExecutorService workers;
+  private final int frameBudget;
+  /** Requests waiting to be searched for on the rendering thread, oldest first. */
+  private final Queue<PathRequest> queuedRequests = new Queue<>();
+  private final Array<PathRequest> slicedRequests = new Array<>(false, MAX_SLICED_SEARCHES);
+  private final Array<AStarSearch> freeSearches = new Array<>(false, MAX_SLICED_SEARCHES);
+  /** The cells of the paths being searched for on the rendering thread. */
+  private final Pool<IntArray> slicedPaths = new Pool<IntArray>() {
+    @Override
+    protected IntArray newObject() {
+      return new IntArray();
+    }
+
+    @Override
+    protected void reset(IntArray path) {
+      path.clear();
+    }
+  };
+  /**
+   * The searches used on the rendering thread for modes that can't be sliced, indexed by the
+   * ordinal of the mode they use and created as needed.
+   * */
+  private final PathFinder[] blockingSearches = new PathFinder[SearchModes.values().length];
+  /** Each worker's searches, indexed by the ordinal of the mode they use, created as needed. */
+  private final ThreadLocal<PathFinder[]> workerSearches;
+  private final ThreadLocal<IntArray> workerPaths;
+
+  private final HashMap<Long, PathRequest> pendingRequests = new HashMap<>();
+  private final ConcurrentLinkedQueue<PathRequest> completedRequests =
+      new ConcurrentLinkedQueue<>();
+
+  /** Receives the result of a path request. */
+  public interface PathListener {
+    /**
+     * Called when a requested path has been found.
+     *
+     * @param path The path, which may be shared with other listeners and must not be changed
+     * */
+    void pathFound(TilePath path);
+
+    /**
+     * Called when no path exists between the requested cells.
+     *
+     * @param start The index of the cell the path was requested from
+     * @param destination The index of the cell the path was requested to
+     * */
+    void pathNotFound(int start, int destination);
+  }
+
+  /** A request for a path between two cells, shared by every listener waiting on it. */
+  private class PathRequest implements Runnable {
+    final int start;
+    final int destination;
+    final Array<PathListener> listeners = new Array<>(false, 4);
+    int meshVersion;
+    /** The search mode of the mesh when the request was submitted, which the worker uses. */
+    SearchModes searchMode;
+    TilePath result;
+    /** The exception thrown by the search, if it failed. */
+    RuntimeException error;
+    /** The search advancing this request, when searching on the rendering thread. */
+    AStarSearch search;
+    IntArray path;
+
+    PathRequest(int start, int destination) {
+      this.start = start;
+      this.destination = destination;
+    }
+
+    @Override
+    public void run() {
+      try {
+        IntArray path = workerPaths.get();
+        if (getWorkerSearch(searchMode).findPath(start, destination, path)) {
+          result = new TilePath(start, path);
+        }
+      } catch (RuntimeException exception) {
+        // Searching while the mesh changes can fail, so whether this is a bug can only be told
+        // once the request is delivered and the mesh version can be checked
+        result = null;
+        error = exception;
+      }
+      completedRequests.add(this);
+    }
+  }
+
+  /**
+   * Start a path request service with the given number of worker threads.
+   *
+   * @param mesh The mesh to find paths across
+   * @param workerCount The number of threads to search on
+   * */
+  public PathRequestService(NavigationMesh mesh, int workerCount) {
+    this(mesh, workerCount, 0);
+  }
+
+  /**
+   * Start a path request service, either with worker threads or searching on the rendering thread.
+   *
+   * @param mesh The mesh to find paths across
+   * @param workerCount The number of threads to search on, 0 to search on the rendering thread
+   *                    during {@link PathRequestService#deliverResults()} instead
+   * @param frameBudget The number of cells that can be expanded each time results are delivered,
+   *                    when searching on the rendering thread
+   * @throws IllegalArgumentException Thrown if there are no workers and the budget isn't positive
+   * */
+  public PathRequestService(final NavigationMesh mesh, int workerCount, int frameBudget) {
+    this.mesh = mesh;
+    this.frameBudget = frameBudget;
+    if (workerCount == 0) {
+      if (frameBudget <= 0) {
+        throw new IllegalArgumentException("Searching on the rendering thread needs a budget");
+      }
+      workers = null;
+      workerSearches = null;
+      workerPaths = null;
+      return;
+    }
+    workers = Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+      private int threadCount = 0;
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "pathfinding-worker-" + threadCount++);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    workerSearches = new ThreadLocal<PathFinder[]>() {
+      @Override
+      protected PathFinder[] initialValue() {
+        return new PathFinder[SearchModes.values().length];
+      }
+    };
+    workerPaths = new ThreadLocal<IntArray>() {
+      @Override
+      protected IntArray initialValue() {
+        return new IntArray();
+      }
+    };
+  }
+
+  /**
+   * Request a path between two cells. The listener will be called from
+   * {@link PathRequestService#deliverResults()} once the path has been found, the earliest being
+   * the next time it is called.
+   *
+   * @param start The index of the cell to start from, or -1 if the start is outside of the mesh
+   * @param destination The index of the cell to find a path to
+   * @param listener The listener to pass the result to
+   * */
+  public void requestPath(int start, int destination, PathListener listener) {
+    Long key = getKey(start, destination);
+    PathRequest request = pendingRequests.get(key);
+    if (request != null) {
+      request.listeners.add(listener);
+      return;
+    }
+
+    request = new PathRequest(start, destination);
+    request.meshVersion = mesh.getVersion();
+    request.searchMode = mesh.getSearchMode();
+    request.listeners.add(listener);
+    pendingRequests.put(key, request);
+
+    if (start == -1 || destination == -1) {
+      completedRequests.add(request);
+      return;
+    }
+    request.result = mesh.getPrecomputedTilePath(start, destination);
+    if (request.result != null) {
+      completedRequests.add(request);
+    } else {
+      submit(request);
+    }
+  }
+
+  /**
+   * Hand every path found since the last call to the listeners waiting on it. Results that were
+   * searched for against an older version of the mesh are searched for again instead. When
+   * searching on the rendering thread, the outstanding searches are advanced first.
+   * */
+  public void deliverResults() {
+    if (workers == null) {
+      advanceSearches();
+    }
+    int completedCount = completedRequests.size();
+    for (int i = 0; i < completedCount; i++) {
+      PathRequest request = completedRequests.poll();
+      if (request.start != -1 && request.destination != -1
+          && (request.meshVersion != mesh.getVersion()
+              || request.searchMode != mesh.getSearchMode())) {
+        // Found on an older mesh or by the previous search mode, neither of which should make it
+        // into the path cache
+        request.result = null;
+        request.error = null;
+        submit(request);
+        continue;
+      }
+      pendingRequests.remove(getKey(request.start, request.destination));
+      if (request.error != null) {
+        Gdx.app.error("PathRequestService", "Searching for a path from " + request.start
+            + " to " + request.destination + " failed", request.error);
+        request.error = null;
+      }
+
+      if (request.result != null) {
+        mesh.getPathCache().put(request.result);
+        for (PathListener listener : request.listeners) {
+          listener.pathFound(request.result);
+        }
+      } else {
+        for (PathListener listener : request.listeners) {
+          listener.pathNotFound(request.start, request.destination);
+        }
+      }
+    }
+  }
+
+  /**
+   * Return the number of requests that have not yet been delivered.
+   *
+   * @return The number of pending requests, with merged requests counted once
+   * */
+  public int getPendingRequestCount() {
+    return pendingRequests.size();
+  }
+
+  /**
+   * Stop the worker threads. Requests still being searched for, or made afterwards, will not be
+   * delivered.
+   * */
+  public void dispose() {
+    if (workers != null) {
+      workers.shutdownNow();
+    }
+    queuedRequests.clear();
+    slicedRequests.clear();
+  }
+
+  private void submit(PathRequest request) {
+    request.meshVersion = mesh.getVersion();
+    request.searchMode = mesh.getSearchMode();
+    if (workers == null) {
+      queuedRequests.addLast(request);
+    } else if (!workers.isShutdown()) {
+      workers.execute(request);
+    }
+  }
+
+  /**
+   * Spend this frame's budget of cell expansions on the requests waiting to be searched for.
+   * Up to {@link PathRequestService#MAX_SLICED_SEARCHES} are advanced at once, taking turns so
+   * that one long search can't starve the others, and finished searches make room for the oldest
+   * waiting requests. Requests made in a mode that can't be sliced are searched for in full as
+   * they come out of the queue, ending the frame's searching.
+   * */
+  private void advanceSearches() {
+    int budget = frameBudget;
+    while (budget > 0) {
+      while (slicedRequests.size < MAX_SLICED_SEARCHES && queuedRequests.size > 0) {
+        PathRequest request = queuedRequests.removeFirst();
+        if (request.searchMode != SearchModes.A_STAR) {
+          searchInFull(request);
+          return;
+        }
+        request.search = freeSearches.size > 0 ? freeSearches.pop() : new AStarSearch(mesh);
+        request.path = slicedPaths.obtain();
+        request.search.startSearch(request.start, request.destination);
+        slicedRequests.add(request);
+      }
+      if (slicedRequests.size == 0) {
+        return;
+      }
+
+      int share = Math.max(budget / slicedRequests.size, 1);
+      for (int i = slicedRequests.size - 1; i >= 0 && budget > 0; i--) {
+        PathRequest request = slicedRequests.get(i);
+        int expandedBefore = request.search.getExpandedNodes();
+        SearchStates state = request.search.continueSearch(Math.min(share, budget),
+            request.path);
+        budget -= Math.max(request.search.getExpandedNodes() - expandedBefore, 1);
+
+        if (state != SearchStates.SEARCHING) {
+          if (state == SearchStates.FOUND) {
+            request.result = new TilePath(request.start, request.path);
+          }
+          freeSearches.add(request.search);
+          slicedPaths.free(request.path);
+          request.search = null;
+          request.path = null;
+          slicedRequests.removeIndex(i);
+          completedRequests.add(request);
+        }
+      }
+    }
+  }
+
+  /**
+   * Search for a request's path on the rendering thread in one go, with the mode it was made in.
+   * */
+  private void searchInFull(PathRequest request) {
+    PathFinder search = blockingSearches[request.searchMode.ordinal()];
+    if (search == null) {
+      search = mesh.createSearch(request.searchMode);
+      blockingSearches[request.searchMode.ordinal()] = search;
+    }
+    IntArray path = slicedPaths.obtain();
+    try {
+      if (search.findPath(request.start, request.destination, path)) {
+        request.result = new TilePath(request.start, path);
+      }
+    } catch (RuntimeException exception) {
+      request.error = exception;
+    }
+    slicedPaths.free(path);
+    completedRequests.add(request);
+  }
+
+  /**
+   * Return the calling worker's search for a mode, creating it the first time the mode is used.
+   * Keeping one per mode means a worker never searches with a mode other than the one the
+   * request was made under, even if the mode changes while the request is queued.
+   * */
+  private PathFinder getWorkerSearch(SearchModes mode) {
+    PathFinder[] searches = workerSearches.get();
+    if (searches[mode.ordinal()] == null) {
+      searches[mode.ordinal()] = mesh.createSearch(mode);
+    }
+    return searches[mode.ordinal()];
+  }
+
+  private static Long getKey(int start, int destination) {
+    return ((long) start << 32) | (destination & 0xffffffffL);
+  }
+}
@@ -0,0 +1,183 @@
+package com.threecubed.auber.pathfinding;
+
+import java.util.List;
+
+
+/**
+ * A static index over a fixed set of points in the game world, such as the flee points. The
+ * points are sorted into square buckets of a regular grid, so a query only has to look at the
+ * buckets around it, moving outwards until no unchecked bucket could hold anything closer than
+ * what has already been found. Queries write to arrays supplied by the caller and never allocate.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class PointGrid {
+  private final float bucketSize;
+  private final float minX;
+  private final float minY;
+  private final int bucketsWide;
+  private final int bucketsHigh;
+
+  /** The points sorted by bucket, the points of bucket i are from bucketStarts[i] onwards. */
+  private final float[][] points;
+  private final int[] bucketStarts;
+  private final float[] bestDistances;
+
+  /**
+   * Build an index over a list of points.
+   *
+   * @param points The points to index, each as an array of {x, y}
+   * @param bucketSize The width and height of a bucket in world units
+   * @param maxResults The most results any query will ask for
+   * */
+  public PointGrid(List<float[]> points, float bucketSize, int maxResults) {
+    if (bucketSize <= 0) {
+      throw new IllegalArgumentException("Bucket size must be positive");
+    }
+    this.bucketSize = bucketSize;
+    bestDistances = new float[maxResults];
+
+    float lowestX = Float.MAX_VALUE;
+    float lowestY = Float.MAX_VALUE;
+    float highestX = -Float.MAX_VALUE;
+    float highestY = -Float.MAX_VALUE;
+    for (float[] point : points) {
+      lowestX = Math.min(lowestX, point[0]);
+      lowestY = Math.min(lowestY, point[1]);
+      highestX = Math.max(highestX, point[0]);
+      highestY = Math.max(highestY, point[1]);
+    }
+    if (points.isEmpty()) {
+      lowestX = lowestY = highestX = highestY = 0;
+    }
+    minX = lowestX;
+    minY = lowestY;
+    bucketsWide = (int) ((highestX - lowestX) / bucketSize) + 1;
+    bucketsHigh = (int) ((highestY - lowestY) / bucketSize) + 1;
+
+    // Count the points in each bucket, then place them in order of bucket
+    bucketStarts = new int[bucketsWide * bucketsHigh + 1];
+    for (float[] point : points) {
+      bucketStarts[getBucket(point[0], point[1]) + 1]++;
+    }
+    for (int i = 1; i < bucketStarts.length; i++) {
+      bucketStarts[i] += bucketStarts[i - 1];
+    }
+    this.points = new float[points.size()][];
+    int[] nextSlots = new int[bucketsWide * bucketsHigh];
+    System.arraycopy(bucketStarts, 0, nextSlots, 0, nextSlots.length);
+    for (float[] point : points) {
+      this.points[nextSlots[getBucket(point[0], point[1])]++] = point;
+    }
+  }
+
+  public int size() {
+    return points.length;
+  }
+
+  /**
+   * Return one of the indexed points.
+   *
+   * @param index The index of the point, as written by
+   *              {@link PointGrid#findNearest(float, float, float, int[])}
+   * @return The point as an array of {x, y}
+   * */
+  public float[] getPoint(int index) {
+    return points[index];
+  }
+
+  /**
+   * Find the points nearest to a position that are further than a given distance away from it.
+   *
+   * @param x The x coordinate of the position to search from
+   * @param y The y coordinate of the position to search from
+   * @param minimumDistance Points this close to the position or closer are ignored, a negative
+   *                        distance ignores none of them
+   * @param results The array to write the indices of the points found to, nearest first. As many
+   *                points as the array can hold are found
+   * @return The number of points found, less than the length of results if there weren't enough
+   * */
+  public int findNearest(float x, float y, float minimumDistance, int[] results) {
+    if (results.length > bestDistances.length) {
+      throw new IllegalArgumentException("Too many results requested");
+    }
+    float minimumDistanceSquared = minimumDistance < 0 ? -1 : minimumDistance * minimumDistance;
+    int found = 0;
+
+    int centreX = clamp((int) Math.floor((x - minX) / bucketSize), bucketsWide);
+    int centreY = clamp((int) Math.floor((y - minY) / bucketSize), bucketsHigh);
+    // The distance from the position to the outside of the buckets checked so far
+    float edgeDistance = Math.min(Math.min(x - (minX + centreX * bucketSize),
+                                           minX + (centreX + 1) * bucketSize - x),
+                                  Math.min(y - (minY + centreY * bucketSize),
+                                           minY + (centreY + 1) * bucketSize - y));
+    int maxRing = Math.max(Math.max(centreX, bucketsWide - 1 - centreX),
+                           Math.max(centreY, bucketsHigh - 1 - centreY));
+
+    for (int ring = 0; ring <= maxRing; ring++) {
+      for (int bucketY = centreY - ring; bucketY <= centreY + ring; bucketY++) {
+        if (bucketY < 0 || bucketY >= bucketsHigh) {
+          continue;
+        }
+        boolean edgeRow = bucketY == centreY - ring || bucketY == centreY + ring;
+        // Only the outline of the ring is new, the inside was covered by smaller rings
+        int step = edgeRow ? 1 : Math.max(2 * ring, 1);
+        for (int bucketX = centreX - ring; bucketX <= centreX + ring; bucketX += step) {
+          if (bucketX < 0 || bucketX >= bucketsWide) {
+            continue;
+          }
+          int bucket = bucketY * bucketsWide + bucketX;
+          for (int i = bucketStarts[bucket]; i < bucketStarts[bucket + 1]; i++) {
+            float distanceX = points[i][0] - x;
+            float distanceY = points[i][1] - y;
+            float distance = distanceX * distanceX + distanceY * distanceY;
+            if (distance > minimumDistanceSquared) {
+              found = insertResult(i, distance, results, found);
+            }
+          }
+        }
+      }
+      float searchedDistance = Math.max(edgeDistance + ring * bucketSize, 0);
+      if (found == results.length
+          && bestDistances[found - 1] <= searchedDistance * searchedDistance) {
+        break;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Insert a point into the sorted list of the nearest points found so far, dropping the
+   * furthest one if the list is full.
+   *
+   * @return The new number of points in the list
+   * */
+  private int insertResult(int index, float distance, int[] results, int found) {
+    if (found == results.length) {
+      if (found == 0 || distance >= bestDistances[found - 1]) {
+        return found;
+      }
+      found--;
+    }
+    int position = found;
+    while (position > 0 && bestDistances[position - 1] > distance) {
+      bestDistances[position] = bestDistances[position - 1];
+      results[position] = results[position - 1];
+      position--;
+    }
+    bestDistances[position] = distance;
+    results[position] = index;
+    return found + 1;
+  }
+
+  private int getBucket(float x, float y) {
+    int bucketX = clamp((int) ((x - minX) / bucketSize), bucketsWide);
+    int bucketY = clamp((int) ((y - minY) / bucketSize), bucketsHigh);
+    return bucketY * bucketsWide + bucketX;
+  }
+
+  private static int clamp(int value, int size) {
+    return Math.max(0, Math.min(value, size - 1));
+  }
+}
@@ -0,0 +1,294 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.utils.IntArray;
+import java.util.Arrays;
+
+
+/**
+ * The graph used by {@link RegionSearch}. The traversable cells of the mesh are split into
+ * rectangular regions, each grown as large as it can be from the first cell not yet in a region.
+ * Any two cells of a region can be joined by a straight or diagonal line without leaving it, so
+ * moving within a region never needs a search. Wherever two regions share part of a border, a
+ * portal joins them: the run of cells on one region's side of the border that can step straight
+ * across into the other.
+ *
+ * <p>Rooms and corridors each break down into a handful of rectangles, so the graph is far
+ * smaller than the mesh. Like {@link ClusterGraph}, one is shared by every search over a mesh and
+ * it is rebuilt the next time it is used after the mesh changes.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class RegionGraph {
+  private final NavigationMesh mesh;
+
+  /** The region each cell belongs to, or -1 for cells that aren't traversable. */
+  private final int[] cellRegions;
+  private int regionCount = 0;
+  private int[] minXs = new int[0];
+  private int[] minYs = new int[0];
+  private int[] maxXs = new int[0];
+  private int[] maxYs = new int[0];
+
+  private int[][] edgeTargets;
+  private int[][] edgeDirections;
+  private int[][] portalMins;
+  private int[][] portalMaxes;
+  private volatile boolean outdated = true;
+
+  /**
+   * Create the graph for a mesh. It is built the first time it is used.
+   *
+   * @param mesh The mesh to build the graph over
+   * */
+  public RegionGraph(NavigationMesh mesh) {
+    this.mesh = mesh;
+    cellRegions = new int[mesh.getCellCount()];
+  }
+
+  /**
+   * Make sure the graph reflects the current state of the mesh, rebuilding it if needed. Searches
+   * running on other threads may call this at the same time, so only one of them will rebuild it.
+   * */
+  public synchronized void update() {
+    if (outdated) {
+      build();
+    }
+  }
+
+  /**
+   * Mark the graph as needing to be rebuilt, it will be rebuilt the next time it is used.
+   * */
+  public void invalidate() {
+    outdated = true;
+  }
+
+  public int getRegionCount() {
+    return regionCount;
+  }
+
+  /**
+   * Return the region a cell belongs to.
+   *
+   * @param cell The index of the cell
+   * @return The index of the region containing the cell, or -1 if the cell isn't traversable
+   * */
+  public int getRegion(int cell) {
+    return cellRegions[cell];
+  }
+
+  public int getMinX(int region) {
+    return minXs[region];
+  }
+
+  public int getMinY(int region) {
+    return minYs[region];
+  }
+
+  public int getMaxX(int region) {
+    return maxXs[region];
+  }
+
+  public int getMaxY(int region) {
+    return maxYs[region];
+  }
+
+  public int[] getEdgeTargets(int region) {
+    return edgeTargets[region];
+  }
+
+  /**
+   * Return the direction each portal out of a region is crossed in, as an index into
+   * {@link NavigationMesh#NEIGHBOUR_OFFSETS_X} and {@link NavigationMesh#NEIGHBOUR_OFFSETS_Y}.
+   * Portals are always crossed orthogonally, so these are between 0 and 3.
+   *
+   * @param region The index of the region
+   * @return The direction of each edge out of the region
+   * */
+  public int[] getEdgeDirections(int region) {
+    return edgeDirections[region];
+  }
+
+  /**
+   * Return where each portal out of a region starts along the region's border. This is an x
+   * coordinate for portals crossed vertically and a y coordinate for those crossed horizontally.
+   *
+   * @param region The index of the region
+   * @return The lowest coordinate of each portal out of the region
+   * */
+  public int[] getPortalMins(int region) {
+    return portalMins[region];
+  }
+
+  /**
+   * Return where each portal out of a region ends along the region's border, in the same terms
+   * as {@link RegionGraph#getPortalMins(int)}.
+   *
+   * @param region The index of the region
+   * @return The highest coordinate of each portal out of the region
+   * */
+  public int[] getPortalMaxes(int region) {
+    return portalMaxes[region];
+  }
+
+  private void build() {
+    outdated = false;
+    Arrays.fill(cellRegions, -1);
+    IntArray bounds = new IntArray();
+    int[] best = new int[2];
+
+    for (int y = 0; y < mesh.getHeight(); y++) {
+      for (int x = 0; x < mesh.getWidth(); x++) {
+        if (cellRegions[mesh.getCellIndex(x, y)] != -1 || !mesh.cellTraversable(x, y)) {
+          continue;
+        }
+        // Grow the rectangle wide first and tall first, and keep whichever covers more cells
+        findRectangle(x, y, true, best);
+        int wideWidth = best[0];
+        int wideHeight = best[1];
+        findRectangle(x, y, false, best);
+        if (wideWidth * wideHeight >= best[0] * best[1]) {
+          best[0] = wideWidth;
+          best[1] = wideHeight;
+        }
+
+        int region = bounds.size / 4;
+        bounds.addAll(x, y, x + best[0] - 1, y + best[1] - 1);
+        for (int regionY = y; regionY < y + best[1]; regionY++) {
+          for (int regionX = x; regionX < x + best[0]; regionX++) {
+            cellRegions[mesh.getCellIndex(regionX, regionY)] = region;
+          }
+        }
+      }
+    }
+
+    regionCount = bounds.size / 4;
+    minXs = new int[regionCount];
+    minYs = new int[regionCount];
+    maxXs = new int[regionCount];
+    maxYs = new int[regionCount];
+    for (int region = 0; region < regionCount; region++) {
+      minXs[region] = bounds.get(region * 4);
+      minYs[region] = bounds.get(region * 4 + 1);
+      maxXs[region] = bounds.get(region * 4 + 2);
+      maxYs[region] = bounds.get(region * 4 + 3);
+    }
+
+    edgeTargets = new int[regionCount][];
+    edgeDirections = new int[regionCount][];
+    portalMins = new int[regionCount][];
+    portalMaxes = new int[regionCount][];
+    IntArray targets = new IntArray();
+    IntArray directions = new IntArray();
+    IntArray mins = new IntArray();
+    IntArray maxes = new IntArray();
+    for (int region = 0; region < regionCount; region++) {
+      targets.clear();
+      directions.clear();
+      mins.clear();
+      maxes.clear();
+      // Walk the cells just outside each side of the region, in the order of the direction indices
+      addPortals(minXs[region], maxXs[region], minYs[region] - 1, false, 0,
+          targets, directions, mins, maxes);
+      addPortals(minYs[region], maxYs[region], minXs[region] - 1, true, 1,
+          targets, directions, mins, maxes);
+      addPortals(minYs[region], maxYs[region], maxXs[region] + 1, true, 2,
+          targets, directions, mins, maxes);
+      addPortals(minXs[region], maxXs[region], maxYs[region] + 1, false, 3,
+          targets, directions, mins, maxes);
+      edgeTargets[region] = targets.toArray();
+      edgeDirections[region] = directions.toArray();
+      portalMins[region] = mins.toArray();
+      portalMaxes[region] = maxes.toArray();
+    }
+  }
+
+  /**
+   * Find the largest rectangle of traversable cells not yet in a region that has the given cell
+   * as its bottom left corner, growing it along one axis as far as possible before the other.
+   *
+   * @param x The x coordinate of the corner cell
+   * @param y The y coordinate of the corner cell
+   * @param wideFirst Whether to grow the rectangle horizontally first
+   * @param size The array to write the width and height of the rectangle to
+   * */
+  private void findRectangle(int x, int y, boolean wideFirst, int[] size) {
+    int width = 1;
+    int height = 1;
+    if (wideFirst) {
+      while (cellFree(x + width, y)) {
+        width++;
+      }
+      while (rowFree(x, x + width - 1, y + height)) {
+        height++;
+      }
+    } else {
+      while (cellFree(x, y + height)) {
+        height++;
+      }
+      while (columnFree(y, y + height - 1, x + width)) {
+        width++;
+      }
+    }
+    size[0] = width;
+    size[1] = height;
+  }
+
+  private boolean cellFree(int x, int y) {
+    return mesh.cellTraversable(x, y) && cellRegions[mesh.getCellIndex(x, y)] == -1;
+  }
+
+  private boolean rowFree(int minX, int maxX, int y) {
+    for (int x = minX; x <= maxX; x++) {
+      if (!cellFree(x, y)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean columnFree(int minY, int maxY, int x) {
+    for (int y = minY; y <= maxY; y++) {
+      if (!cellFree(x, y)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Add a portal for each run of cells just outside one side of a region that belong to the same
+   * neighbouring region.
+   *
+   * @param min The lowest coordinate along the side
+   * @param max The highest coordinate along the side
+   * @param outside The fixed coordinate of the cells just outside the side
+   * @param vertical Whether the side runs vertically, so the fixed coordinate is an x coordinate
+   * @param direction The direction the portals are crossed in
+   * */
+  private void addPortals(int min, int max, int outside, boolean vertical, int direction,
+      IntArray targets, IntArray directions, IntArray mins, IntArray maxes) {
+    int runStart = min;
+    int runRegion = -1;
+    for (int along = min; along <= max + 1; along++) {
+      int region = -1;
+      if (along <= max) {
+        int x = vertical ? outside : along;
+        int y = vertical ? along : outside;
+        if (mesh.cellTraversable(x, y)) {
+          region = cellRegions[mesh.getCellIndex(x, y)];
+        }
+      }
+      if (region != runRegion) {
+        if (runRegion != -1) {
+          targets.add(runRegion);
+          directions.add(direction);
+          mins.add(runStart);
+          maxes.add(along - 1);
+        }
+        runStart = along;
+        runRegion = region;
+      }
+    }
+  }
+}
@@ -0,0 +1,350 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.utils.IntArray;
+import java.util.Arrays;
+
+
+/**
+ * A search over the rectangular regions of a {@link RegionGraph} rather than the cells of a
+ * {@link NavigationMesh}. Each region is entered at a single cell, and the cell a portal is
+ * crossed at is picked to make the route from that entry cell through the portal towards the
+ * destination as short as possible. A route that crosses a few rooms therefore only expands a
+ * few regions. Since each region is only entered once, paths can be slightly longer than those
+ * found by {@link AStarSearch}.
+ *
+ * <p>The path is filled in with straight and diagonal runs of cells between the portals, which
+ * are always valid since they never leave a rectangle of traversable cells. A path written by
+ * this search turns at most twice per region, so it collapses into few waypoints in a
+ * {@link TilePath}.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public class RegionSearch implements PathFinder {
+  /** The number of times the crossings of a route are improved once it has been found. */
+  private static final int SMOOTHING_PASSES = 2;
+
+  private final NavigationMesh mesh;
+  private final RegionGraph graph;
+  private final IntArray regionPath = new IntArray();
+  /** The positions along a portal that could be the best place to cross it. */
+  private final int[] crossingCandidates = new int[6];
+
+  private NodeHeap openRegions;
+  private int[] costs;
+  private int[] parents;
+  /** The cell each region was entered at. */
+  private int[] entryCells;
+  /** The direction each region was entered in, or -1 for the regions searched from. */
+  private int[] entryDirections;
+  /** The edge of the parent region each region was entered through. */
+  private int[] entryEdges;
+  private int[] opened;
+  private int[] closed;
+  private int generation = 0;
+  private int expandedNodes = 0;
+
+  /**
+   * Create a search over the given mesh using a shared region graph.
+   *
+   * @param mesh The navigation mesh to search
+   * @param graph The region graph built over the mesh
+   * */
+  public RegionSearch(NavigationMesh mesh, RegionGraph graph) {
+    this.mesh = mesh;
+    this.graph = graph;
+    // Split the mesh into regions now rather than during the first search
+    graph.update();
+  }
+
+  @Override
+  public boolean findPath(int start, int destination, IntArray path) {
+    path.clear();
+    expandedNodes = 0;
+    if (start == destination) {
+      return true;
+    }
+    graph.update();
+    int destinationRegion = graph.getRegion(destination);
+    if (destinationRegion == -1) {
+      return false;
+    }
+    prepareSearch(graph.getRegionCount());
+    int destinationX = mesh.getCellX(destination);
+    int destinationY = mesh.getCellY(destination);
+
+    int startX = mesh.getCellX(start);
+    int startY = mesh.getCellY(start);
+    if (graph.getRegion(start) != -1) {
+      relaxRegion(graph.getRegion(start), -1, -1, start, 0, destinationX, destinationY);
+    } else {
+      // The start isn't in a region, so search from every region it can step into
+      int successors = mesh.getSuccessorMask(startX, startY);
+      for (int direction = 0; successors != 0; direction++, successors >>>= 1) {
+        if ((successors & 1) != 0) {
+          int successor = mesh.getCellIndex(startX + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+                                            startY + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction]);
+          relaxRegion(graph.getRegion(successor), -1, -1, successor, 1, destinationX,
+              destinationY);
+        }
+      }
+    }
+
+    while (!openRegions.isEmpty()) {
+      int current = openRegions.poll();
+      if (current == destinationRegion) {
+        tracePath(start, destination, destinationRegion, path);
+        return true;
+      }
+      closed[current] = generation;
+      expandedNodes++;
+
+      int entryX = mesh.getCellX(entryCells[current]);
+      int entryY = mesh.getCellY(entryCells[current]);
+      int[] targets = graph.getEdgeTargets(current);
+      int[] directions = graph.getEdgeDirections(current);
+      int[] portalMins = graph.getPortalMins(current);
+      int[] portalMaxes = graph.getPortalMaxes(current);
+
+      for (int i = 0; i < targets.length; i++) {
+        if (closed[targets[i]] == generation) {
+          continue;
+        }
+        int direction = directions[i];
+        int exit = findCrossing(current, direction, portalMins[i], portalMaxes[i], entryX, entryY,
+            destinationX, destinationY);
+        int exitX = mesh.getCellX(exit);
+        int exitY = mesh.getCellY(exit);
+        int entry = mesh.getCellIndex(exitX + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+                                      exitY + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction]);
+        int cost = costs[current] + TileSearch.estimateCost(entryX, entryY, exitX, exitY) + 1;
+        relaxRegion(targets[i], current, i, entry, cost, destinationX, destinationY);
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int getExpandedNodes() {
+    return expandedNodes;
+  }
+
+  /**
+   * Record a route into a region if it is cheaper than any found so far in this search. Moving
+   * within a region is never blocked, so once the destination's region has been entered the
+   * estimate of the rest of the route is exact.
+   * */
+  private void relaxRegion(int region, int parent, int edge, int entry, int cost,
+      int destinationX, int destinationY) {
+    if (closed[region] == generation) {
+      return;
+    }
+    int estimate = TileSearch.estimateCost(mesh.getCellX(entry), mesh.getCellY(entry),
+        destinationX, destinationY);
+    if (opened[region] != generation
+        || cost + estimate < openRegions.getPriority(region)) {
+      opened[region] = generation;
+      costs[region] = cost;
+      parents[region] = parent;
+      entryCells[region] = entry;
+      entryEdges[region] = edge;
+      entryDirections[region] = edge == -1 ? -1 : graph.getEdgeDirections(parent)[edge];
+      openRegions.add(region, cost + estimate, -cost);
+    }
+  }
+
+  /**
+   * Pick the cell of a portal to cross at, minimising the moves from the cell the region was
+   * entered at to the portal plus the estimated moves from the other side of it to the
+   * destination. Both are piecewise linear along the portal, so the best cell is at one of the
+   * points where either of them changes slope, or at an end of the portal.
+   *
+   * @param region The region being left
+   * @param direction The direction the portal is crossed in
+   * @param portalMin The lowest coordinate of the portal along the region's border
+   * @param portalMax The highest coordinate of the portal along the region's border
+   *
+   * @return The index of the cell in the region to cross the portal from
+   * */
+  private int findCrossing(int region, int direction, int portalMin, int portalMax, int entryX,
+      int entryY, int destinationX, int destinationY) {
+    boolean vertical = NavigationMesh.NEIGHBOUR_OFFSETS_X[direction] != 0;
+    int border;
+    if (vertical) {
+      border = direction == 1 ? graph.getMinX(region) : graph.getMaxX(region);
+    } else {
+      border = direction == 0 ? graph.getMinY(region) : graph.getMaxY(region);
+    }
+    int across = border + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction]
+        + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction];
+
+    int entryAlong = vertical ? entryY : entryX;
+    int entryDistance = Math.abs((vertical ? entryX : entryY) - border);
+    int destinationAlong = vertical ? destinationY : destinationX;
+    int destinationDistance = Math.abs((vertical ? destinationX : destinationY) - across);
+    crossingCandidates[0] = entryAlong;
+    crossingCandidates[1] = entryAlong - entryDistance;
+    crossingCandidates[2] = entryAlong + entryDistance;
+    crossingCandidates[3] = destinationAlong;
+    crossingCandidates[4] = destinationAlong - destinationDistance;
+    crossingCandidates[5] = destinationAlong + destinationDistance;
+
+    int bestAlong = portalMin;
+    int bestCost = Integer.MAX_VALUE;
+    for (int candidate : crossingCandidates) {
+      int along = Math.max(portalMin, Math.min(portalMax, candidate));
+      int cost = Math.max(Math.abs(along - entryAlong), entryDistance)
+          + Math.max(Math.abs(along - destinationAlong), destinationDistance);
+      if (cost < bestCost) {
+        bestCost = cost;
+        bestAlong = along;
+      }
+    }
+    return vertical ? mesh.getCellIndex(border, bestAlong) : mesh.getCellIndex(bestAlong, border);
+  }
+
+  /**
+   * Follow the parents of the destination's region back to the start, then write the cells of
+   * the route through each region to the path.
+   * */
+  private void tracePath(int start, int destination, int destinationRegion, IntArray path) {
+    regionPath.clear();
+    for (int region = destinationRegion; region != -1; region = parents[region]) {
+      regionPath.add(region);
+    }
+    regionPath.reverse();
+    smoothCrossings(destination);
+
+    int current = start;
+    int lastStepX = 0;
+    int lastStepY = 0;
+    for (int i = 0; i < regionPath.size; i++) {
+      int region = regionPath.get(i);
+      int entry = entryCells[region];
+      int direction = entryDirections[region];
+      if (direction == -1) {
+        // The start, or a cell next to it when the start isn't in a region
+        if (entry != start) {
+          path.add(entry);
+          lastStepX = mesh.getCellX(entry) - mesh.getCellX(start);
+          lastStepY = mesh.getCellY(entry) - mesh.getCellY(start);
+        }
+      } else {
+        addLine(current, getExitCell(region), lastStepX, lastStepY, path);
+        path.add(entry);
+        lastStepX = NavigationMesh.NEIGHBOUR_OFFSETS_X[direction];
+        lastStepY = NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction];
+      }
+      current = entry;
+    }
+    addLine(current, destination, lastStepX, lastStepY, path);
+  }
+
+  /**
+   * Improve where the route crosses each portal now that the whole route is known. During the
+   * search a crossing could only be picked using the cell the region was entered at and an
+   * estimate of the rest of the route, so each is picked again between the crossings either side
+   * of it, which can only shorten the route.
+   *
+   * @param destination The index of the destination cell
+   * */
+  private void smoothCrossings(int destination) {
+    for (int pass = 0; pass < SMOOTHING_PASSES; pass++) {
+      for (int i = 1; i < regionPath.size; i++) {
+        int region = regionPath.get(i);
+        int parent = regionPath.get(i - 1);
+        int edge = entryEdges[region];
+        int previousEntry = entryCells[parent];
+        int next = i + 1 < regionPath.size ? getExitCell(regionPath.get(i + 1)) : destination;
+
+        int direction = entryDirections[region];
+        int exit = findCrossing(parent, direction, graph.getPortalMins(parent)[edge],
+            graph.getPortalMaxes(parent)[edge], mesh.getCellX(previousEntry),
+            mesh.getCellY(previousEntry), mesh.getCellX(next), mesh.getCellY(next));
+        entryCells[region] = mesh.getCellIndex(
+            mesh.getCellX(exit) + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+            mesh.getCellY(exit) + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction]);
+      }
+    }
+  }
+
+  /**
+   * Return the cell a region's parent was left from to enter it.
+   *
+   * @param region The index of a region entered through a portal
+   * @return The index of the cell on the parent's side of the portal
+   * */
+  private int getExitCell(int region) {
+    int entry = entryCells[region];
+    int direction = entryDirections[region];
+    return mesh.getCellIndex(mesh.getCellX(entry) - NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+                             mesh.getCellY(entry) - NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction]);
+  }
+
+  /**
+   * Add the cells between two cells of the same region to the end of a path. Any route made of
+   * as many diagonal moves as the shorter axis needs and straight moves for the rest is as short
+   * as any other, so the straight moves are made first if they carry on in the direction of the
+   * last move and last otherwise, saving a turn.
+   *
+   * @param from The index of the cell to start from, which isn't added
+   * @param to The index of the cell to finish at, which is added
+   * @param lastStepX The horizontal part of the move that reached the first cell
+   * @param lastStepY The vertical part of the move that reached the first cell
+   * @param path The path to add the cells to
+   * */
+  private void addLine(int from, int to, int lastStepX, int lastStepY, IntArray path) {
+    int x = mesh.getCellX(from);
+    int y = mesh.getCellY(from);
+    int toX = mesh.getCellX(to);
+    int toY = mesh.getCellY(to);
+    int distanceX = Math.abs(toX - x);
+    int distanceY = Math.abs(toY - y);
+    int stepX = Integer.signum(toX - x);
+    int stepY = Integer.signum(toY - y);
+    int straightX = distanceX > distanceY ? stepX : 0;
+    int straightY = distanceX > distanceY ? 0 : stepY;
+    int straightMoves = Math.abs(distanceX - distanceY);
+    boolean straightFirst = straightMoves > 0 && straightX == lastStepX && straightY == lastStepY;
+
+    for (int move = Math.max(distanceX, distanceY); move > 0; move--) {
+      boolean straight = straightFirst ? straightMoves > 0 : move <= straightMoves;
+      if (straight) {
+        x += straightX;
+        y += straightY;
+        straightMoves--;
+      } else {
+        x += stepX;
+        y += stepY;
+      }
+      path.add(mesh.getCellIndex(x, y));
+    }
+  }
+
+  /**
+   * Reset the state of the search, growing it if the graph has been rebuilt with more regions
+   * than it can hold.
+   *
+   * @param regionCount The number of regions that will be searched
+   * */
+  private void prepareSearch(int regionCount) {
+    if (openRegions == null || costs.length < regionCount) {
+      openRegions = new NodeHeap(regionCount);
+      costs = new int[regionCount];
+      parents = new int[regionCount];
+      entryCells = new int[regionCount];
+      entryDirections = new int[regionCount];
+      entryEdges = new int[regionCount];
+      opened = new int[regionCount];
+      closed = new int[regionCount];
+      generation = 0;
+    }
+    openRegions.clear();
+    generation++;
+    if (generation == Integer.MAX_VALUE) {
+      Arrays.fill(opened, 0);
+      Arrays.fill(closed, 0);
+      generation = 1;
+    }
+  }
+}
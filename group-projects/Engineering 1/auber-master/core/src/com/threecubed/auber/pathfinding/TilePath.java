@@ -0,0 +1,137 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.utils.IntArray;
+
+
+/**
+ * An immutable path across a {@link NavigationMesh}, stored as the packed indices of the cells
+ * it passes through. The start cell is not included and the destination cell is the last one.
+ * Since it can't be changed, a single path can be shared by any number of NPCs.
+ *
+ * <p>Runs of cells along the same straight or diagonal line are collapsed into waypoints, the
+ * cells at which the path turns, so an NPC following the path only has to aim for those.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public final class TilePath {
+  private final int start;
+  private final int[] cells;
+  private final int[] waypoints;
+
+  /**
+   * Create a path from the cells of a search result.
+   *
+   * @param start The index of the cell the path starts from
+   * @param cells The cells along the path, as written by
+   *              {@link PathFinder#findPath(int, int, IntArray)}. They are copied.
+   * */
+  public TilePath(int start, IntArray cells) {
+    this.start = start;
+    this.cells = cells.toArray();
+    waypoints = findWaypoints(start, this.cells);
+  }
+
+  public int getStart() {
+    return start;
+  }
+
+  public int getDestination() {
+    return cells.length == 0 ? start : cells[cells.length - 1];
+  }
+
+  public int getLength() {
+    return cells.length;
+  }
+
+  public int getCell(int index) {
+    return cells[index];
+  }
+
+  public int getWaypointCount() {
+    return waypoints.length;
+  }
+
+  /**
+   * Return one of the cells the path turns at. The last waypoint is always the destination.
+   *
+   * @param index The index of the waypoint, from 0 to {@link TilePath#getWaypointCount()} - 1
+   * @return The index of the cell
+   * */
+  public int getWaypoint(int index) {
+    return waypoints[index];
+  }
+
+  /**
+   * Find which waypoint to head for from a cell of the path, for picking a path up part way
+   * along it.
+   *
+   * @param cell The index of the cell
+   * @return The index of the first waypoint at or beyond the cell, 0 for the start cell, or -1
+   *         if the path doesn't pass through the cell
+   * */
+  public int getWaypointFrom(int cell) {
+    if (cell == start) {
+      return 0;
+    }
+    int waypoint = 0;
+    for (int i = 0; i < cells.length; i++) {
+      if (cells[i] == cell) {
+        return waypoint;
+      }
+      if (cells[i] == waypoints[waypoint]) {
+        waypoint++;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Check whether any cell of the path, including its start, is within one cell of the given
+   * coordinates. Because a diagonal move relies on the orthogonal cells next to it, these are the
+   * only paths that changing the given cell can break.
+   *
+   * @param mesh The mesh the path was generated on
+   * @param x The x coordinate of the cell
+   * @param y The y coordinate of the cell
+   *
+   * @return Whether the path passes next to or through the cell
+   * */
+  public boolean passesNear(NavigationMesh mesh, int x, int y) {
+    if (cellNear(mesh, start, x, y)) {
+      return true;
+    }
+    for (int cell : cells) {
+      if (cellNear(mesh, cell, x, y)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean cellNear(NavigationMesh mesh, int cell, int x, int y) {
+    return Math.abs(mesh.getCellX(cell) - x) <= 1 && Math.abs(mesh.getCellY(cell) - y) <= 1;
+  }
+
+  /**
+   * Find the cells of a path after which the direction of travel changes. Neighbouring cells
+   * always differ by one of eight fixed amounts, so comparing those differences is enough to
+   * tell whether two moves are in the same direction.
+   *
+   * @return The indices of the cells the path turns at, followed by the destination
+   * */
+  private static int[] findWaypoints(int start, int[] cells) {
+    IntArray waypoints = new IntArray(false, 4);
+    int previous = start;
+    for (int i = 0; i < cells.length - 1; i++) {
+      if (cells[i] - previous != cells[i + 1] - cells[i]) {
+        waypoints.add(cells[i]);
+      }
+      previous = cells[i];
+    }
+    if (cells.length > 0) {
+      waypoints.add(cells[cells.length - 1]);
+    }
+    return waypoints.toArray();
+  }
+}
@@ -0,0 +1,139 @@
+package com.threecubed.auber.pathfinding;
+
+import com.badlogic.gdx.utils.IntArray;
+import java.util.Arrays;
+
+
+/**
+ * The base class of the {@link PathFinder}s written for this game, which search the cells of a
+ * {@link NavigationMesh} directly.
+ * All of the per-cell state (path costs, parents and the open/closed sets) lives in arrays
+ * sized to the mesh that are reused between searches, so a search does not allocate anything
+ * per expanded node. Instead of clearing these arrays, each search is given a new generation
+ * number and a cell only counts as opened or closed if it was marked during the current one.
+ *
+ * <p>A search object is not thread safe, each thread that searches should own its own.
+ *
+ * @version 1.1
+ * @since 1.1
+ * */
+public abstract class TileSearch implements PathFinder {
+  protected final NavigationMesh mesh;
+  protected final NodeHeap openNodes;
+  protected final int[] pathCosts;
+  protected final int[] parents;
+  private final int[] openedGeneration;
+  private final int[] closedGeneration;
+  private int generation = 0;
+  /** The number of cells expanded by the last search, for comparing searches against each other. */
+  protected int expandedNodes = 0;
+
+  /**
+   * Create a search, allocating all the state it will need for the given mesh.
+   *
+   * @param mesh The navigation mesh to search
+   * */
+  public TileSearch(NavigationMesh mesh) {
+    this.mesh = mesh;
+    int cellCount = mesh.getCellCount();
+    openNodes = new NodeHeap(cellCount);
+    pathCosts = new int[cellCount];
+    parents = new int[cellCount];
+    openedGeneration = new int[cellCount];
+    closedGeneration = new int[cellCount];
+  }
+
+  @Override
+  public int getExpandedNodes() {
+    return expandedNodes;
+  }
+
+  /**
+   * Estimate the cost of moving between two cells. Since a diagonal move costs the same as an
+   * orthogonal one, the number of moves needed on an empty grid is the larger of the two axis
+   * distances, which never overestimates the real cost.
+   *
+   * @return The estimated cost between the two cells
+   * */
+  protected static int estimateCost(int x, int y, int destinationX, int destinationY) {
+    return Math.max(Math.abs(destinationX - x), Math.abs(destinationY - y));
+  }
+
+  /**
+   * Reset the open set and invalidate the marks left by the previous search.
+   * */
+  protected void nextGeneration() {
+    openNodes.clear();
+    generation++;
+    if (generation == Integer.MAX_VALUE) {
+      // Wrapped around, stale marks could now be mistaken for current ones
+      Arrays.fill(openedGeneration, 0);
+      Arrays.fill(closedGeneration, 0);
+      generation = 1;
+    }
+  }
+
+  /**
+   * Add the start cell to the open set of a new search.
+   *
+   * @param start The index of the start cell
+   * @param priority The estimated cost from the start cell to the destination
+   * */
+  protected void openStart(int start, int priority) {
+    pathCosts[start] = 0;
+    parents[start] = -1;
+    openedGeneration[start] = generation;
+    openNodes.add(start, priority);
+  }
+
+  /**
+   * Record a route to a cell if it is cheaper than any found so far in this search. Cells with
+   * the same estimated total cost are expanded deepest first, since they are more likely to be
+   * on the way to the destination.
+   *
+   * @param cell The index of the cell that has been reached
+   * @param parent The index of the cell it was reached from
+   * @param pathCost The cost of the route to the cell
+   * @param estimatedCost The estimated cost from the cell to the destination
+   * */
+  protected void relax(int cell, int parent, int pathCost, int estimatedCost) {
+    if (closedGeneration[cell] == generation) {
+      return;
+    }
+    if (openedGeneration[cell] != generation || pathCost < pathCosts[cell]) {
+      openedGeneration[cell] = generation;
+      pathCosts[cell] = pathCost;
+      parents[cell] = parent;
+      openNodes.add(cell, pathCost + estimatedCost, -pathCost);
+    }
+  }
+
+  protected void close(int cell) {
+    closedGeneration[cell] = generation;
+    expandedNodes++;
+  }
+
+  /**
+   * Follow the parents of the destination back to the start, writing every cell passed through
+   * to the path. Consecutive cells in the parent chain must lie on a straight or diagonal line.
+   *
+   * @param destination The index of the destination cell
+   * @param path The array to write the path to
+   * */
+  protected void tracePath(int destination, IntArray path) {
+    for (int node = destination; parents[node] != -1; node = parents[node]) {
+      int parent = parents[node];
+      int x = mesh.getCellX(node);
+      int y = mesh.getCellY(node);
+      int stepX = Integer.signum(mesh.getCellX(parent) - x);
+      int stepY = Integer.signum(mesh.getCellY(parent) - y);
+
+      for (int cell = node; cell != parent; cell = mesh.getCellIndex(x, y)) {
+        path.add(cell);
+        x += stepX;
+        y += stepY;
+      }
+    }
+    path.reverse();
+  }
+}
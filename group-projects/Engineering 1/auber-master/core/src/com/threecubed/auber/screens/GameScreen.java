@@ -11,6 +11,7 @@ import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
 import com.threecubed.auber.AuberGame;
 import com.threecubed.auber.World;
 import com.threecubed.auber.entities.Civilian;
+import com.threecubed.auber.entities.EntityStore;
 import com.threecubed.auber.entities.GameEntity;
 import com.threecubed.auber.entities.Infiltrator;
 import com.threecubed.auber.entities.Player;
@@ -62,8 +63,13 @@ public class GameScreen extends ScreenAdapter {
     if (Gdx.input.isKeyPressed(Input.Keys.ESCAPE)) {
       game.setScreen(new MenuScreen(game));
     }
+    // Run any timers due this tick, before the entities they move are reindexed
+    world.timers.tick();
     // Add any queued entities
     world.updateEntities();
+    // Hand out any paths found since the last frame
+    world.pathRequests.deliverResults();
+    world.updatePlayerDistances();
 
     // Set the background color
     Gdx.gl.glClearColor(0, 0, 0, 1);
@@ -82,8 +88,11 @@ public class GameScreen extends ScreenAdapter {
     // Iterate over all entities. Perform movement logic and render them.
     batch.begin();
     world.infiltratorCount = 0;
-    for (GameEntity entity : world.getEntities()) {
+    EntityStore entities = world.getEntities();
+    for (int i = 0; i < entities.size(); i++) {
+      GameEntity entity = entities.getAt(i);
       entity.update(world);
+      world.entityGrid.update(entity);
       entity.render(batch, world.camera);
 
       if (entity instanceof Player) {
@@ -114,6 +123,11 @@ public class GameScreen extends ScreenAdapter {
     world.checkForEndState();
   }
 
+  @Override
+  public void hide() {
+    world.dispose();
+  }
+
   @Override
   public void dispose() {
     world.renderer.dispose();
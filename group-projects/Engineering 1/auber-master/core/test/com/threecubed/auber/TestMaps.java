@@ -0,0 +1,75 @@
+package com.threecubed.auber;
+
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
+import java.io.File;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+
+/**
+ * Loads tile layers for tests without starting libGDX, either from the game's map or from rows
+ * of text.
+ * */
+public final class TestMaps {
+  /** The game's map, relative to the core project the tests are run from. */
+  public static final String MAP_FILE = "assets/map.tmx";
+  public static final int TILE_SIZE = 16;
+
+  private TestMaps() {
+  }
+
+  /**
+   * Read a layer of the game's map. Only which tiles have a cell is kept, the cells have no tile.
+   *
+   * @param name The name of the layer
+   * @return The layer
+   * */
+  public static TiledMapTileLayer loadLayer(String name) {
+    try {
+      NodeList layers = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+          .parse(new File(MAP_FILE)).getElementsByTagName("layer");
+      for (int i = 0; i < layers.getLength(); i++) {
+        Element layer = (Element) layers.item(i);
+        if (!layer.getAttribute("name").equals(name)) {
+          continue;
+        }
+        int width = Integer.parseInt(layer.getAttribute("width"));
+        int height = Integer.parseInt(layer.getAttribute("height"));
+        String[] tiles = layer.getElementsByTagName("data").item(0).getTextContent().trim()
+            .split("\\s*,\\s*");
+        TiledMapTileLayer result = new TiledMapTileLayer(width, height, TILE_SIZE, TILE_SIZE);
+        for (int tile = 0; tile < tiles.length; tile++) {
+          if (Integer.parseInt(tiles[tile]) != 0) {
+            // Rows are stored from the top of the map down
+            result.setCell(tile % width, height - 1 - tile / width, new Cell());
+          }
+        }
+        return result;
+      }
+    } catch (Exception exception) {
+      throw new IllegalStateException("Couldn't read " + MAP_FILE, exception);
+    }
+    throw new IllegalArgumentException("The map has no layer named " + name);
+  }
+
+  /**
+   * Build a layer from rows of text, where '#' is a tile with a cell and anything else is empty.
+   *
+   * @param rows The rows of the layer, from the top down
+   * @return The layer
+   * */
+  public static TiledMapTileLayer parseLayer(String... rows) {
+    TiledMapTileLayer layer = new TiledMapTileLayer(rows[0].length(), rows.length, TILE_SIZE,
+        TILE_SIZE);
+    for (int row = 0; row < rows.length; row++) {
+      for (int column = 0; column < rows[row].length(); column++) {
+        if (rows[row].charAt(column) == '#') {
+          layer.setCell(column, rows.length - 1 - row, new Cell());
+        }
+      }
+    }
+    return layer;
+  }
+}
@@ -0,0 +1,97 @@
+package com.threecubed.auber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.badlogic.gdx.utils.LongArray;
+import org.junit.Test;
+
+
+public class TimingWheelTest {
+  /** Delays in ticks either side of where timers start in each coarser ring. */
+  private static final int[] DELAYS = {1, 2, 63, 64, 65, 127, 128, 4095, 4096, 4097, 5000, 262143,
+      262144, 262145, 300000};
+
+  @Test
+  public void runsTimersOnTheTickTheyAreDue() {
+    final TimingWheel wheel = new TimingWheel(1);
+    final LongArray ranAt = new LongArray();
+    for (int delay : DELAYS) {
+      // Starting part way round the finest ring moves where each timer drops down
+      for (int offset = 0; offset < 3; offset++) {
+        final long due = wheel.getTick() + delay;
+        wheel.schedule(new Runnable() {
+          @Override
+          public void run() {
+            assertEquals(due, wheel.getTick());
+            ranAt.add(due);
+          }
+        }, delay);
+        wheel.tick();
+      }
+    }
+    while (ranAt.size < DELAYS.length * 3 && wheel.getTick() < 1000000) {
+      wheel.tick();
+    }
+    assertEquals(DELAYS.length * 3, ranAt.size);
+  }
+
+  @Test
+  public void repeatsUntilCancelled() {
+    final TimingWheel wheel = new TimingWheel(60);
+    final LongArray ranAt = new LongArray();
+    final long[] timer = new long[1];
+    timer[0] = wheel.scheduleRepeating(new Runnable() {
+      @Override
+      public void run() {
+        ranAt.add(wheel.getTick());
+        if (ranAt.size == 4) {
+          assertTrue(wheel.cancel(timer[0]));
+        }
+      }
+    }, 0.5f, 2);
+    for (int tick = 0; tick < 1000; tick++) {
+      wheel.tick();
+    }
+    assertEquals(LongArray.with(30, 150, 270, 390), ranAt);
+    assertFalse(wheel.isScheduled(timer[0]));
+  }
+
+  @Test
+  public void handlesOfFinishedTimersDoNothing() {
+    TimingWheel wheel = new TimingWheel(1);
+    final int[] runs = new int[2];
+    long first = wheel.schedule(new Runnable() {
+      @Override
+      public void run() {
+        runs[0]++;
+      }
+    }, 1);
+    wheel.tick();
+    assertFalse(wheel.isScheduled(first));
+
+    // The second timer reuses the first one's record
+    long second = wheel.schedule(new Runnable() {
+      @Override
+      public void run() {
+        runs[1]++;
+      }
+    }, 1);
+    assertFalse(wheel.cancel(first));
+    assertTrue(wheel.isScheduled(second));
+    wheel.tick();
+    assertEquals(1, runs[0]);
+    assertEquals(1, runs[1]);
+    assertFalse(wheel.cancel(TimingWheel.NO_TIMER));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void refusesDelaysLongerThanTheWheel() {
+    new TimingWheel(60).schedule(new Runnable() {
+      @Override
+      public void run() {
+      }
+    }, 1000000);
+  }
+}
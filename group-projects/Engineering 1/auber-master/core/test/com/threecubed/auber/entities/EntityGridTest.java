@@ -0,0 +1,118 @@
+package com.threecubed.auber.entities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import java.util.Random;
+import org.junit.Test;
+
+
+public class EntityGridTest {
+  private static final float AREA_SIZE = 400;
+  private static final float BUCKET_SIZE = 32;
+
+  @Test
+  public void findsTheSameFirstEntityAsCheckingThemAll() {
+    Random random = new Random(23);
+    EntityGrid grid = new EntityGrid(AREA_SIZE, AREA_SIZE, BUCKET_SIZE);
+    Array<GameEntity> entities = new Array<>();
+    for (int i = 0; i < 150; i++) {
+      // Some entities sit outside of the area the grid covers
+      GameEntity entity = new TestEntity(random.nextFloat() * 480 - 40,
+          random.nextFloat() * 480 - 40, 4 + random.nextInt(28), 4 + random.nextInt(28));
+      entity.rotation = random.nextFloat() * 360;
+      grid.add(entity);
+      entities.add(entity);
+    }
+
+    Vector2 hitPoint = new Vector2();
+    for (int attempt = 0; attempt < 3000; attempt++) {
+      Vector2 start = new Vector2(random.nextFloat() * 500 - 50, random.nextFloat() * 500 - 50);
+      Vector2 end = new Vector2(random.nextFloat() * 500 - 50, random.nextFloat() * 500 - 50);
+      if (attempt % 10 == 0) {
+        // Straight along an axis
+        end.y = start.y;
+      }
+      GameEntity ignored = entities.get(random.nextInt(entities.size));
+
+      float expected = Float.MAX_VALUE;
+      for (GameEntity entity : entities) {
+        if (entity != ignored) {
+          expected = Math.min(expected, entryFraction(entity.getBoundingRectangle(), start, end));
+        }
+      }
+      GameEntity found = grid.findFirstAlongSegment(start, end, ignored, hitPoint);
+      String name = "Segment from " + start + " to " + end;
+      if (expected == Float.MAX_VALUE) {
+        assertNull(name, found);
+      } else {
+        assertEquals(name, expected,
+            entryFraction(found.getBoundingRectangle(), start, end), 1e-5f);
+        assertEquals(name, start.x + (end.x - start.x) * expected, hitPoint.x, 0.01f);
+        assertEquals(name, start.y + (end.y - start.y) * expected, hitPoint.y, 0.01f);
+      }
+    }
+  }
+
+  @Test
+  public void followsEntitiesThatMove() {
+    EntityGrid grid = new EntityGrid(AREA_SIZE, AREA_SIZE, BUCKET_SIZE);
+    GameEntity near = new TestEntity(100, 96, 8, 8);
+    GameEntity far = new TestEntity(300, 96, 8, 8);
+    grid.add(near);
+    grid.add(far);
+    Vector2 start = new Vector2(0, 100);
+    Vector2 end = new Vector2(AREA_SIZE, 100);
+    Vector2 hitPoint = new Vector2();
+    assertSame(near, grid.findFirstAlongSegment(start, end, null, hitPoint));
+    assertEquals(100, hitPoint.x, 0.01f);
+
+    near.position.set(100, 200);
+    grid.update(near);
+    assertSame(far, grid.findFirstAlongSegment(start, end, null, hitPoint));
+    assertEquals(300, hitPoint.x, 0.01f);
+
+    grid.remove(far);
+    assertNull(grid.findFirstAlongSegment(start, end, null, hitPoint));
+  }
+
+  /**
+   * Work out how far along a segment it enters a rectangle by checking where it crosses each
+   * edge, or {@link Float#MAX_VALUE} if it never does.
+   * */
+  private static float entryFraction(Rectangle rectangle, Vector2 start, Vector2 end) {
+    if (rectangle.contains(start)) {
+      return 0;
+    }
+    float best = Float.MAX_VALUE;
+    float deltaX = end.x - start.x;
+    float deltaY = end.y - start.y;
+    float[] edgesX = {rectangle.x, rectangle.x + rectangle.width};
+    float[] edgesY = {rectangle.y, rectangle.y + rectangle.height};
+    for (float edge : edgesX) {
+      if (deltaX != 0) {
+        float fraction = (edge - start.x) / deltaX;
+        float y = start.y + deltaY * fraction;
+        if (fraction >= 0 && fraction <= 1 && y >= rectangle.y
+            && y <= rectangle.y + rectangle.height) {
+          best = Math.min(best, fraction);
+        }
+      }
+    }
+    for (float edge : edgesY) {
+      if (deltaY != 0) {
+        float fraction = (edge - start.y) / deltaY;
+        float x = start.x + deltaX * fraction;
+        if (fraction >= 0 && fraction <= 1 && x >= rectangle.x
+            && x <= rectangle.x + rectangle.width) {
+          best = Math.min(best, fraction);
+        }
+      }
+    }
+    return best;
+  }
+}
@@ -0,0 +1,88 @@
+package com.threecubed.auber.entities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.Test;
+
+
+public class EntityStoreTest {
+  @Test
+  public void handlesOfRemovedEntitiesAreStale() {
+    EntityStore store = new EntityStore();
+    GameEntity first = new TestEntity(0, 0, 8, 8);
+    long firstHandle = store.add(first);
+    assertEquals(firstHandle, first.getHandle());
+    assertTrue(store.remove(first));
+    assertEquals(EntityStore.NO_HANDLE, first.getHandle());
+
+    // The new entity takes the freed slot, but the old handle must not find it
+    GameEntity second = new TestEntity(0, 0, 8, 8);
+    long secondHandle = store.add(second);
+    assertEquals((int) firstHandle, (int) secondHandle);
+    assertFalse(store.contains(firstHandle));
+    assertNull(store.get(firstHandle));
+    assertFalse(store.remove(firstHandle));
+    assertSame(second, store.get(secondHandle));
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  public void removingKeepsTheRestPackedAndFindable() {
+    EntityStore store = new EntityStore();
+    ArrayList<GameEntity> expected = new ArrayList<>();
+    Random random = new Random(18);
+    for (int step = 0; step < 2000; step++) {
+      if (expected.isEmpty() || random.nextInt(3) != 0) {
+        GameEntity entity = new TestEntity(0, 0, 8, 8);
+        store.add(entity);
+        expected.add(entity);
+      } else {
+        GameEntity entity = expected.remove(random.nextInt(expected.size()));
+        long handle = entity.getHandle();
+        assertTrue(store.remove(entity));
+        assertFalse(store.contains(handle));
+      }
+
+      assertEquals(expected.size(), store.size());
+      HashSet<GameEntity> packed = new HashSet<>();
+      for (int i = 0; i < store.size(); i++) {
+        packed.add(store.getAt(i));
+      }
+      assertEquals(new HashSet<>(expected), packed);
+      for (GameEntity entity : expected) {
+        assertSame(entity, store.get(entity.getHandle()));
+      }
+    }
+  }
+
+  @Test
+  public void removingAnEntityNotInTheStoreDoesNothing() {
+    EntityStore store = new EntityStore();
+    EntityStore other = new EntityStore();
+    GameEntity inStore = new TestEntity(0, 0, 8, 8);
+    GameEntity inOther = new TestEntity(0, 0, 8, 8);
+    store.add(inStore);
+    other.add(inOther);
+    // The entity in the other store has the same handle as the one in this store
+    assertEquals(inStore.getHandle(), inOther.getHandle());
+    assertFalse(store.remove(inOther));
+    assertFalse(store.remove(new TestEntity(0, 0, 8, 8)));
+    assertEquals(1, store.size());
+    assertSame(inStore, store.getAt(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void refusesEntitiesAlreadyInAStore() {
+    EntityStore store = new EntityStore();
+    GameEntity entity = new TestEntity(0, 0, 8, 8);
+    store.add(entity);
+    new EntityStore().add(entity);
+  }
+}
@@ -0,0 +1,29 @@
+package com.threecubed.auber.entities;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.threecubed.auber.World;
+
+
+/**
+ * An entity that does nothing, sized by a texture region with no texture so it can be made
+ * without a graphics context.
+ * */
+class TestEntity extends GameEntity {
+  TestEntity(float x, float y, final int width, final int height) {
+    super(x, y, new TextureRegion() {
+      @Override
+      public int getRegionWidth() {
+        return width;
+      }
+
+      @Override
+      public int getRegionHeight() {
+        return height;
+      }
+    });
+  }
+
+  @Override
+  public void update(World world) {
+  }
+}
@@ -0,0 +1,172 @@
+package com.threecubed.auber.entities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.threecubed.auber.TestMaps;
+import java.util.Random;
+import org.junit.Test;
+
+
+public class TileColliderTest {
+  private static final int LAYER_SIZE = 20;
+  /** How finely the brute force checks below step along a movement. */
+  private static final float STEP = 0.01f;
+
+  @Test
+  public void sweepsStopWhereSteppingWouldFirstTouchATile() {
+    Random random = new Random(22);
+    TileCollider collider = new TileCollider(randomLayer(random));
+    for (int attempt = 0; attempt < 2000; attempt++) {
+      Rectangle box = randomFreeBox(collider, random);
+      float distance = (random.nextFloat() - 0.5f) * 100;
+
+      float expectedX = stepUntilSolid(collider, box, distance, true);
+      float movedX = collider.sweepX(box.x, box.y, box.x + box.width, box.y + box.height,
+          distance);
+      assertEquals("Horizontal sweep of " + box + " by " + distance, expectedX, movedX,
+          STEP + 0.01f);
+      assertFalse(overlapsSolid(collider, box.x + movedX, box.y, box.width, box.height));
+
+      float expectedY = stepUntilSolid(collider, box, distance, false);
+      float movedY = collider.sweepY(box.x, box.y, box.x + box.width, box.y + box.height,
+          distance);
+      assertEquals("Vertical sweep of " + box + " by " + distance, expectedY, movedY,
+          STEP + 0.01f);
+      assertFalse(overlapsSolid(collider, box.x, box.y + movedY, box.width, box.height));
+    }
+  }
+
+  @Test
+  public void slidesAlongWallsItRunsInto() {
+    TileCollider collider = new TileCollider(TestMaps.parseLayer(
+        "......",
+        "....#.",
+        "....#.",
+        "....#.",
+        "......"));
+    Rectangle box = new Rectangle(16, 17, 12, 12);
+    Vector2 movement = new Vector2();
+    float contact = collider.sweep(box, new Vector2(40, 10), movement);
+
+    // The wall starts at x = 64, so the box can only move 36 across but all of the way up
+    assertEquals(36, movement.x, 0.01f);
+    assertEquals(10, movement.y, 0f);
+    assertEquals(36f / 40, contact, 0.01f);
+    assertFalse(overlapsSolid(collider, box.x + movement.x, box.y + movement.y, box.width,
+        box.height));
+
+    assertEquals(1f, collider.sweep(box, new Vector2(-5, 5), movement), 0f);
+    assertEquals(new Vector2(-5, 5), movement);
+  }
+
+  @Test
+  public void raysStopWhereTheyFirstEnterATile() {
+    Random random = new Random(23);
+    TileCollider collider = new TileCollider(randomLayer(random));
+    float mapSize = LAYER_SIZE * TestMaps.TILE_SIZE;
+    Vector2 hitPoint = new Vector2();
+    for (int attempt = 0; attempt < 2000; attempt++) {
+      Vector2 start = new Vector2(random.nextFloat() * mapSize, random.nextFloat() * mapSize);
+      Vector2 end = new Vector2(random.nextFloat() * mapSize, random.nextFloat() * mapSize);
+      float fraction = collider.castRay(start, end, hitPoint);
+
+      int steps = 100000;
+      float expected = Float.MAX_VALUE;
+      for (int step = 0; step <= steps; step++) {
+        float along = (float) step / steps;
+        if (collider.isSolidAt(start.x + (end.x - start.x) * along,
+            start.y + (end.y - start.y) * along)) {
+          expected = along;
+          break;
+        }
+      }
+      String name = "Ray from " + start + " to " + end;
+      if (expected == Float.MAX_VALUE) {
+        assertEquals(name, Float.MAX_VALUE, fraction, 0f);
+      } else {
+        assertEquals(name, expected, fraction, 2f / steps);
+        assertEquals(name, start.x + (end.x - start.x) * fraction, hitPoint.x, 0.001f);
+        assertEquals(name, start.y + (end.y - start.y) * fraction, hitPoint.y, 0.001f);
+      }
+    }
+  }
+
+  @Test
+  public void raysStartingInsideATileHitStraightAway() {
+    TileCollider collider = new TileCollider(TestMaps.parseLayer(
+        "....",
+        ".#..",
+        "...."));
+    Vector2 hitPoint = new Vector2();
+    assertEquals(0f, collider.castRay(new Vector2(20, 20), new Vector2(60, 40), hitPoint), 0f);
+    assertEquals(new Vector2(20, 20), hitPoint);
+    assertEquals(Float.MAX_VALUE,
+        collider.castRay(new Vector2(40, 4), new Vector2(60, 40), hitPoint), 0f);
+    assertTrue(collider.isSolid(1, 1));
+  }
+
+  private static TiledMapTileLayer randomLayer(Random random) {
+    TiledMapTileLayer layer = new TiledMapTileLayer(LAYER_SIZE, LAYER_SIZE, TestMaps.TILE_SIZE,
+        TestMaps.TILE_SIZE);
+    for (int row = 0; row < LAYER_SIZE; row++) {
+      for (int column = 0; column < LAYER_SIZE; column++) {
+        if (random.nextInt(6) == 0) {
+          layer.setCell(column, row, new Cell());
+        }
+      }
+    }
+    return layer;
+  }
+
+  private static Rectangle randomFreeBox(TileCollider collider, Random random) {
+    float mapSize = LAYER_SIZE * TestMaps.TILE_SIZE;
+    while (true) {
+      Rectangle box = new Rectangle(random.nextFloat() * mapSize, random.nextFloat() * mapSize,
+          4 + random.nextFloat() * 20, 4 + random.nextFloat() * 20);
+      if (!overlapsSolid(collider, box.x, box.y, box.width, box.height)) {
+        return box;
+      }
+    }
+  }
+
+  /**
+   * Move a box along an axis a little at a time until it would touch a solid tile, returning how
+   * far it got.
+   * */
+  private static float stepUntilSolid(TileCollider collider, Rectangle box, float distance,
+      boolean horizontal) {
+    float moved = 0;
+    while (Math.abs(moved) < Math.abs(distance)) {
+      float next = Math.abs(distance - moved) < STEP ? distance
+          : moved + Math.signum(distance) * STEP;
+      if (horizontal ? overlapsSolid(collider, box.x + next, box.y, box.width, box.height)
+          : overlapsSolid(collider, box.x, box.y + next, box.width, box.height)) {
+        return moved;
+      }
+      moved = next;
+    }
+    return moved;
+  }
+
+  /** Whether a box covers any solid tile, counting an edge on a tile border as inside it. */
+  private static boolean overlapsSolid(TileCollider collider, float x, float y, float width,
+      float height) {
+    int tileSize = TestMaps.TILE_SIZE;
+    for (int row = (int) Math.floor(y / tileSize); row <= (int) Math.floor((y + height) / tileSize);
+        row++) {
+      for (int column = (int) Math.floor(x / tileSize);
+          column <= (int) Math.floor((x + width) / tileSize); column++) {
+        if (collider.isSolid(column, row)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,68 @@
+package com.threecubed.auber.pathfinding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.threecubed.auber.TestMaps;
+import org.junit.Test;
+
+
+public class DistanceFieldTest {
+  @Test
+  public void matchesABreadthFirstSearchFromTheSource() {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.loadLayer("navigation_layer"));
+    DistanceField field = new DistanceField(mesh);
+    int[][] sources = {{5, 10}, {20, 30}, {39, 10}};
+    for (int[] source : sources) {
+      moveSource(field, source[0], source[1]);
+      int[] expected = PathOracle.distancesFrom(mesh, mesh.getCellIndex(source[0], source[1]));
+      int furthest = 0;
+      for (int cell = 0; cell < mesh.getCellCount(); cell++) {
+        assertEquals("Distance to " + cell, expected[cell], field.getDistance(cell));
+        furthest = Math.max(furthest, expected[cell]);
+      }
+      assertEquals(furthest, expected[field.getFurthestCell()]);
+    }
+  }
+
+  @Test
+  public void followsCellsBeingSet() {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.loadLayer("navigation_layer"));
+    DistanceField field = new DistanceField(mesh);
+    moveSource(field, 5, 10);
+    int before = field.getDistance(mesh.getCellIndex(20, 30));
+    assertTrue(before > 0);
+
+    // Walling in the source leaves nothing reachable
+    for (int direction = 0; direction < NavigationMesh.NEIGHBOUR_OFFSETS_X.length; direction++) {
+      mesh.setCell(5 + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+          10 + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction], false);
+    }
+    assertEquals(-1, field.getDistance(mesh.getCellIndex(20, 30)));
+  }
+
+  @Test
+  public void keepsTheLastFurthestCellWhenNothingCanBeReached() {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.parseLayer(
+        "......",
+        ".####.",
+        ".####.",
+        "......"));
+    DistanceField field = new DistanceField(mesh);
+    assertEquals(-1, field.getFurthestCell());
+
+    moveSource(field, 1, 1);
+    int furthest = field.getFurthestCell();
+    assertTrue(furthest != -1);
+
+    // A source inside a wall or off the mesh can't walk anywhere
+    moveSource(field, 0, 0);
+    assertEquals(furthest, field.getFurthestCell());
+    field.setSource(-100, -100);
+    assertEquals(furthest, field.getFurthestCell());
+  }
+
+  private static void moveSource(DistanceField field, int x, int y) {
+    field.setSource((x + 0.5f) * TestMaps.TILE_SIZE, (y + 0.5f) * TestMaps.TILE_SIZE);
+  }
+}
@@ -0,0 +1,67 @@
+package com.threecubed.auber.pathfinding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.threecubed.auber.TestMaps;
+import java.util.Random;
+import org.junit.Test;
+
+
+public class HierarchicalSearchTest {
+  /** Every cell of the map is tried as a destination from each of these starts. */
+  private static final int[][] STARTS = {{5, 10}, {20, 30}, {39, 10}, {12, 40}};
+
+  @Test
+  public void findsExactlyTheReachableCellsOfTheMap() {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.loadLayer("navigation_layer"));
+    PathFinder search = mesh.createSearch(NavigationMesh.SearchModes.HIERARCHICAL);
+    for (int[] start : STARTS) {
+      checkAgainstOracle(mesh, search, mesh.getCellIndex(start[0], start[1]));
+    }
+  }
+
+  @Test
+  public void rejectsDestinationsInsideWalls() {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.loadLayer("navigation_layer"));
+    PathFinder search = mesh.createSearch(NavigationMesh.SearchModes.HIERARCHICAL);
+    IntArray path = new IntArray();
+    int start = mesh.getCellIndex(5, 10);
+    for (int cell = 0; cell < mesh.getCellCount(); cell++) {
+      if (cell != start && !mesh.cellTraversable(mesh.getCellX(cell), mesh.getCellY(cell))) {
+        assertFalse("Found a path into wall cell " + cell, search.findPath(start, cell, path));
+        assertEquals(0, path.size);
+      }
+    }
+  }
+
+  @Test
+  public void followsCellsBeingSet() {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.loadLayer("navigation_layer"));
+    PathFinder search = mesh.createSearch(NavigationMesh.SearchModes.HIERARCHICAL);
+    Random random = new Random(5);
+    int start = mesh.getCellIndex(5, 10);
+    for (int change = 0; change < 40; change++) {
+      int x = random.nextInt(mesh.getWidth());
+      int y = random.nextInt(mesh.getHeight());
+      if (mesh.getCellIndex(x, y) != start) {
+        mesh.setCell(x, y, !mesh.cellTraversable(x, y));
+      }
+      checkAgainstOracle(mesh, search, start);
+    }
+  }
+
+  private static void checkAgainstOracle(NavigationMesh mesh, PathFinder search, int start) {
+    int[] distances = PathOracle.distancesFrom(mesh, start);
+    IntArray path = new IntArray();
+    for (int destination = 0; destination < mesh.getCellCount(); destination++) {
+      boolean found = search.findPath(start, destination, path);
+      assertEquals("Whether " + destination + " can be reached from " + start,
+          distances[destination] != -1, found);
+      if (found) {
+        PathOracle.assertWalkable(mesh, start, destination, path);
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.threecubed.auber.pathfinding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.threecubed.auber.TestMaps;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class NextHopTableTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void followsShortestPathsToEveryCell() throws IOException {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.loadLayer("navigation_layer"));
+    NextHopTable table = NextHopTable.load(mesh, new File(folder.getRoot(), "table.bin"));
+    int[][] destinations = {{5, 10}, {20, 30}, {39, 10}};
+    for (int[] destinationCell : destinations) {
+      int destination = mesh.getCellIndex(destinationCell[0], destinationCell[1]);
+      // Moves can be reversed, so the distance from each cell is the distance to it
+      int[] distances = PathOracle.distancesFrom(mesh, destination);
+      for (int cell = 0; cell < mesh.getCellCount(); cell++) {
+        if (cell == destination) {
+          continue;
+        }
+        int moves = 0;
+        for (int current = cell; current != destination && current != -1;
+            current = table.getNextCell(current, destination)) {
+          moves++;
+        }
+        assertEquals("Moves from " + cell + " to " + destination,
+            distances[cell] == -1 ? 1 : distances[cell], moves);
+      }
+    }
+  }
+
+  @Test
+  public void mapsATableThatIsAlreadyBuilt() throws IOException {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.loadLayer("navigation_layer"));
+    File file = new File(folder.getRoot(), "table.bin");
+    NextHopTable.load(mesh, file);
+    assertTrue(file.setLastModified(0));
+
+    NextHopTable.load(mesh, file);
+    assertEquals("The table was written again", 0, file.lastModified());
+  }
+
+  @Test
+  public void isOutOfDateOnceACellIsSet() throws IOException {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.loadLayer("navigation_layer"));
+    NextHopTable table = NextHopTable.load(mesh, new File(folder.getRoot(), "table.bin"));
+    assertTrue(table.isCurrent());
+    mesh.setCell(5, 10, mesh.cellTraversable(5, 10));
+    assertFalse(table.isCurrent());
+  }
+
+  @Test
+  public void deletesTablesThatFailToBuild() {
+    FailingMesh mesh = new FailingMesh(TestMaps.loadLayer("navigation_layer"));
+    mesh.failing = true;
+    File file = new File(folder.getRoot(), "table.bin");
+    try {
+      NextHopTable.load(mesh, file);
+      fail("The table was loaded although building it failed");
+    } catch (IOException exception) {
+      assertTrue(exception.getCause() instanceof IllegalStateException);
+    }
+    assertFalse(file.exists());
+  }
+
+  /** A mesh that stops being able to report the moves from a cell. */
+  private static class FailingMesh extends NavigationMesh {
+    volatile boolean failing;
+
+    FailingMesh(TiledMapTileLayer layer) {
+      super(layer);
+    }
+
+    @Override
+    public int getSuccessorMask(int x, int y) {
+      if (failing) {
+        throw new IllegalStateException("Can't read the moves from " + x + ", " + y);
+      }
+      return super.getSuccessorMask(x, y);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.threecubed.auber.pathfinding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.threecubed.auber.TestMaps;
+import org.junit.Test;
+
+
+public class PathCacheTest {
+  /** Two corridors far enough apart that no cell is next to both. */
+  private static final String[] CORRIDORS = {
+      "..........",
+      ".########.",
+      "..........",
+      "..........",
+      ".########.",
+      ".........."};
+
+  @Test
+  public void blockingACellDropsOnlyThePathsNearIt() {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.parseLayer(CORRIDORS));
+    PathCache cache = mesh.getPathCache();
+    TilePath upper = mesh.getTilePath(mesh.getCellIndex(1, 4), mesh.getCellIndex(8, 4));
+    TilePath lower = mesh.getTilePath(mesh.getCellIndex(1, 1), mesh.getCellIndex(8, 1));
+    assertEquals(2, cache.size());
+
+    mesh.setCell(5, 4, false);
+    assertNull(cache.get(upper.getStart(), upper.getDestination()));
+    assertSame(lower, cache.get(lower.getStart(), lower.getDestination()));
+  }
+
+  @Test
+  public void freeingACellDropsEveryPath() {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.parseLayer(CORRIDORS));
+    PathCache cache = mesh.getPathCache();
+    mesh.getTilePath(mesh.getCellIndex(1, 4), mesh.getCellIndex(8, 4));
+    mesh.getTilePath(mesh.getCellIndex(1, 1), mesh.getCellIndex(8, 1));
+
+    // Joining the corridors could shorten a path between them, wherever it is
+    mesh.setCell(1, 2, true);
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void evictsTheLeastRecentlyUsedPath() {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.parseLayer(CORRIDORS));
+    PathCache cache = new PathCache(mesh, 2);
+    cache.put(new TilePath(mesh.getCellIndex(1, 4), path(mesh, 2, 4)));
+    cache.put(new TilePath(mesh.getCellIndex(1, 1), path(mesh, 2, 1)));
+    assertNotNull(cache.get(mesh.getCellIndex(1, 4), mesh.getCellIndex(2, 4)));
+
+    cache.put(new TilePath(mesh.getCellIndex(3, 4), path(mesh, 4, 4)));
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictions());
+    assertNull(cache.get(mesh.getCellIndex(1, 1), mesh.getCellIndex(2, 1)));
+    assertNotNull(cache.get(mesh.getCellIndex(1, 4), mesh.getCellIndex(2, 4)));
+  }
+
+  @Test
+  public void holdsNothingWithNoCapacity() {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.parseLayer(CORRIDORS));
+    PathCache cache = new PathCache(mesh, 0);
+    cache.put(new TilePath(mesh.getCellIndex(1, 4), path(mesh, 2, 4)));
+    assertEquals(0, cache.size());
+    assertNull(cache.get(mesh.getCellIndex(1, 4), mesh.getCellIndex(2, 4)));
+    assertEquals(1, cache.getMisses());
+  }
+
+  private static IntArray path(NavigationMesh mesh, int x, int y) {
+    return IntArray.with(mesh.getCellIndex(x, y));
+  }
+}
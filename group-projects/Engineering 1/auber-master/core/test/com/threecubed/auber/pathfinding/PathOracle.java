@@ -0,0 +1,80 @@
+package com.threecubed.auber.pathfinding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.badlogic.gdx.utils.IntArray;
+import java.util.Arrays;
+
+
+/**
+ * Works out walking distances across a {@link NavigationMesh} with a plain breadth-first search,
+ * to check the results of the real searches against.
+ * */
+final class PathOracle {
+  private PathOracle() {
+  }
+
+  /**
+   * Find the number of moves from a cell to every cell of the mesh.
+   *
+   * @return The distance to each cell, or -1 for cells that can't be reached
+   * */
+  static int[] distancesFrom(NavigationMesh mesh, int start) {
+    int[] distances = new int[mesh.getCellCount()];
+    Arrays.fill(distances, -1);
+    int[] queue = new int[mesh.getCellCount()];
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = start;
+    distances[start] = 0;
+    while (head < tail) {
+      int current = queue[head++];
+      int x = mesh.getCellX(current);
+      int y = mesh.getCellY(current);
+      int neighbours = mesh.getSuccessorMask(x, y);
+      for (int direction = 0; neighbours != 0; direction++, neighbours >>>= 1) {
+        if ((neighbours & 1) == 0) {
+          continue;
+        }
+        int neighbour = mesh.getCellIndex(x + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+            y + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction]);
+        if (distances[neighbour] == -1) {
+          distances[neighbour] = distances[current] + 1;
+          queue[tail++] = neighbour;
+        }
+      }
+    }
+    return distances;
+  }
+
+  /**
+   * Check that a path found by a search is made of moves the mesh allows and ends at the
+   * destination.
+   * */
+  static void assertWalkable(NavigationMesh mesh, int start, int destination, IntArray path) {
+    int previous = start;
+    for (int i = 0; i < path.size; i++) {
+      int cell = path.get(i);
+      assertTrue("Move " + i + " from " + previous + " to " + cell + " isn't allowed",
+          isMove(mesh, previous, cell));
+      previous = cell;
+    }
+    assertEquals("The path from " + start + " ends short of " + destination, destination,
+        previous);
+  }
+
+  private static boolean isMove(NavigationMesh mesh, int from, int to) {
+    int x = mesh.getCellX(from);
+    int y = mesh.getCellY(from);
+    int neighbours = mesh.getSuccessorMask(x, y);
+    for (int direction = 0; neighbours != 0; direction++, neighbours >>>= 1) {
+      if ((neighbours & 1) != 0
+          && mesh.getCellIndex(x + NavigationMesh.NEIGHBOUR_OFFSETS_X[direction],
+              y + NavigationMesh.NEIGHBOUR_OFFSETS_Y[direction]) == to) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
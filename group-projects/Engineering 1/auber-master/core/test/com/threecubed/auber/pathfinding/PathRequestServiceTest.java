@@ -0,0 +1,115 @@
+package com.threecubed.auber.pathfinding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.threecubed.auber.TestMaps;
+import com.threecubed.auber.pathfinding.NavigationMesh.SearchModes;
+import com.threecubed.auber.pathfinding.PathRequestService.PathListener;
+import org.junit.Test;
+
+
+public class PathRequestServiceTest {
+  private static final int FRAME_BUDGET = 200;
+  /** More frames than any of the requests below can take to be delivered. */
+  private static final int MAX_FRAMES = 10000;
+
+  @Test
+  public void searchesOnTheRenderingThreadInEveryMode() {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.loadLayer("navigation_layer"));
+    int start = mesh.getCellIndex(5, 10);
+    int[] distances = PathOracle.distancesFrom(mesh, start);
+    for (SearchModes mode : SearchModes.values()) {
+      mesh.setSearchMode(mode);
+      PathRequestService service = new PathRequestService(mesh, 0, FRAME_BUDGET);
+      Results results = new Results(mesh.getCellCount());
+      for (int destination = 0; destination < mesh.getCellCount(); destination += 7) {
+        service.requestPath(start, destination, results);
+      }
+      deliverAll(service);
+
+      for (int destination = 0; destination < mesh.getCellCount(); destination += 7) {
+        assertEquals(mode + " path to " + destination, distances[destination] != -1,
+            results.paths[destination] != null);
+        if (results.paths[destination] != null) {
+          assertWalkable(mesh, results.paths[destination], destination);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void changingModeWithRequestsQueuedSearchesThemAgain() {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.loadLayer("navigation_layer"));
+    PathRequestService service = new PathRequestService(mesh, 0, FRAME_BUDGET);
+    Results results = new Results(mesh.getCellCount());
+    int start = mesh.getCellIndex(5, 10);
+    int destination = mesh.getCellIndex(39, 10);
+    service.requestPath(start, destination, results);
+    service.requestPath(start, mesh.getCellIndex(20, 30), results);
+
+    mesh.setSearchMode(SearchModes.JUMP_POINT);
+    deliverAll(service);
+    assertWalkable(mesh, results.paths[destination], destination);
+    assertEquals(PathOracle.distancesFrom(mesh, start)[destination],
+        results.paths[destination].getLength());
+  }
+
+  @Test
+  public void searchesWithWorkers() throws InterruptedException {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.loadLayer("navigation_layer"));
+    PathRequestService service = new PathRequestService(mesh, 2);
+    Results results = new Results(mesh.getCellCount());
+    int start = mesh.getCellIndex(5, 10);
+    int[] distances = PathOracle.distancesFrom(mesh, start);
+    for (int destination = 0; destination < mesh.getCellCount(); destination += 11) {
+      service.requestPath(start, destination, results);
+    }
+    for (int frame = 0; frame < MAX_FRAMES && service.getPendingRequestCount() > 0; frame++) {
+      service.deliverResults();
+      Thread.sleep(1);
+    }
+    service.dispose();
+    assertEquals(0, service.getPendingRequestCount());
+
+    for (int destination = 0; destination < mesh.getCellCount(); destination += 11) {
+      assertEquals("Path to " + destination, distances[destination] != -1,
+          results.paths[destination] != null);
+    }
+  }
+
+  private static void deliverAll(PathRequestService service) {
+    for (int frame = 0; frame < MAX_FRAMES && service.getPendingRequestCount() > 0; frame++) {
+      service.deliverResults();
+    }
+    assertEquals("Requests left undelivered", 0, service.getPendingRequestCount());
+  }
+
+  private static void assertWalkable(NavigationMesh mesh, TilePath path, int destination) {
+    IntArray cells = new IntArray();
+    for (int i = 0; i < path.getLength(); i++) {
+      cells.add(path.getCell(i));
+    }
+    PathOracle.assertWalkable(mesh, path.getStart(), destination, cells);
+  }
+
+  /** Keeps the path delivered to each destination. */
+  private static class Results implements PathListener {
+    final TilePath[] paths;
+
+    Results(int cellCount) {
+      paths = new TilePath[cellCount];
+    }
+
+    @Override
+    public void pathFound(TilePath path) {
+      paths[path.getDestination()] = path;
+    }
+
+    @Override
+    public void pathNotFound(int start, int destination) {
+      assertTrue(paths[destination] == null);
+    }
+  }
+}
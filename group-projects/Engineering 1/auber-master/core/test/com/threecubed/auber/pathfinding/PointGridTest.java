@@ -0,0 +1,64 @@
+package com.threecubed.auber.pathfinding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+
+public class PointGridTest {
+  private static final int MAX_RESULTS = 5;
+
+  @Test
+  public void findsTheSameNearestPointsAsSortingThemAll() {
+    Random random = new Random(8);
+    ArrayList<float[]> points = new ArrayList<>();
+    for (int i = 0; i < 60; i++) {
+      points.add(new float[] {random.nextFloat() * 700, random.nextFloat() * 700});
+    }
+    PointGrid grid = new PointGrid(points, 64, MAX_RESULTS);
+    assertEquals(points.size(), grid.size());
+
+    int[] results = new int[MAX_RESULTS];
+    for (int query = 0; query < 2000; query++) {
+      // Queries from outside the points' bounds have to search inwards
+      float x = random.nextFloat() * 900 - 100;
+      float y = random.nextFloat() * 900 - 100;
+      float minimumDistance = query % 3 == 0 ? -1 : random.nextFloat() * 300;
+
+      float[] expected = new float[points.size()];
+      int expectedCount = 0;
+      for (float[] point : points) {
+        float distance = (float) Math.hypot(point[0] - x, point[1] - y);
+        if (distance > minimumDistance) {
+          expected[expectedCount++] = distance;
+        }
+      }
+      Arrays.sort(expected, 0, expectedCount);
+
+      int found = grid.findNearest(x, y, minimumDistance, results);
+      assertEquals(Math.min(expectedCount, MAX_RESULTS), found);
+      for (int i = 0; i < found; i++) {
+        float[] point = grid.getPoint(results[i]);
+        float distance = (float) Math.hypot(point[0] - x, point[1] - y);
+        assertTrue(distance > minimumDistance);
+        assertEquals("Result " + i + " from " + x + ", " + y, expected[i], distance, 1e-3f);
+      }
+    }
+  }
+
+  @Test
+  public void findsNothingWithNoPoints() {
+    PointGrid grid = new PointGrid(new ArrayList<float[]>(), 64, MAX_RESULTS);
+    assertEquals(0, grid.findNearest(10, 10, -1, new int[MAX_RESULTS]));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void refusesMoreResultsThanItWasBuiltFor() {
+    PointGrid grid = new PointGrid(new ArrayList<float[]>(), 64, MAX_RESULTS);
+    grid.findNearest(10, 10, -1, new int[MAX_RESULTS + 1]);
+  }
+}
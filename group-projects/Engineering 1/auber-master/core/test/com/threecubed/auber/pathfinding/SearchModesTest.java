@@ -0,0 +1,71 @@
+package com.threecubed.auber.pathfinding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.threecubed.auber.TestMaps;
+import com.threecubed.auber.pathfinding.NavigationMesh.SearchModes;
+import java.util.EnumSet;
+import java.util.Random;
+import org.junit.Test;
+
+
+public class SearchModesTest {
+  /** The modes that find paths with the fewest moves, rather than just any path. */
+  private static final EnumSet<SearchModes> SHORTEST_MODES = EnumSet.of(SearchModes.A_STAR,
+      SearchModes.JUMP_POINT, SearchModes.INCREMENTAL, SearchModes.GDX_AI);
+  /** Every cell of the map is tried as a destination from each of these starts. */
+  private static final int[][] STARTS = {{5, 10}, {20, 30}, {39, 10}};
+
+  @Test
+  public void everyModeFindsTheReachableCellsOfTheMap() {
+    NavigationMesh mesh = new NavigationMesh(TestMaps.loadLayer("navigation_layer"));
+    for (SearchModes mode : SearchModes.values()) {
+      PathFinder search = mesh.createSearch(mode);
+      for (int[] start : STARTS) {
+        checkAgainstOracle(mesh, mode, search, mesh.getCellIndex(start[0], start[1]));
+      }
+    }
+  }
+
+  @Test
+  public void everyModeFollowsCellsBeingSet() {
+    for (SearchModes mode : SearchModes.values()) {
+      NavigationMesh mesh = new NavigationMesh(TestMaps.loadLayer("navigation_layer"));
+      PathFinder search = mesh.createSearch(mode);
+      Random random = new Random(11);
+      int start = mesh.getCellIndex(5, 10);
+      for (int change = 0; change < 10; change++) {
+        int x = random.nextInt(mesh.getWidth());
+        int y = random.nextInt(mesh.getHeight());
+        if (mesh.getCellIndex(x, y) != start) {
+          mesh.setCell(x, y, !mesh.cellTraversable(x, y));
+        }
+        checkAgainstOracle(mesh, mode, search, start);
+      }
+    }
+  }
+
+  private static void checkAgainstOracle(NavigationMesh mesh, SearchModes mode,
+      PathFinder search, int start) {
+    int[] distances = PathOracle.distancesFrom(mesh, start);
+    IntArray path = new IntArray();
+    for (int destination = 0; destination < mesh.getCellCount(); destination++) {
+      if (destination == start) {
+        continue;
+      }
+      boolean found = search.findPath(start, destination, path);
+      String name = mode + " path from " + start + " to " + destination;
+      assertEquals(name, distances[destination] != -1, found);
+      if (found) {
+        PathOracle.assertWalkable(mesh, start, destination, path);
+        if (SHORTEST_MODES.contains(mode)) {
+          assertEquals(name, distances[destination], path.size);
+        } else {
+          assertTrue(name, path.size >= distances[destination]);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.threecubed.auber.pathfinding;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.threecubed.auber.TestMaps;
+import org.junit.Test;
+
+
+public class TilePathTest {
+  /** An L-shaped corridor, along the bottom row and then up the right hand column. */
+  private final NavigationMesh mesh = new NavigationMesh(TestMaps.parseLayer(
+      "....#",
+      "....#",
+      "#####"));
+
+  private TilePath createPath() {
+    IntArray cells = new IntArray();
+    for (int x = 1; x <= 4; x++) {
+      cells.add(mesh.getCellIndex(x, 0));
+    }
+    for (int y = 1; y <= 2; y++) {
+      cells.add(mesh.getCellIndex(4, y));
+    }
+    return new TilePath(mesh.getCellIndex(0, 0), cells);
+  }
+
+  @Test
+  public void turnsBecomeWaypoints() {
+    TilePath path = createPath();
+    assertArrayEquals(new int[] {mesh.getCellIndex(4, 0), mesh.getCellIndex(4, 2)},
+        new int[] {path.getWaypoint(0), path.getWaypoint(1)});
+    assertEquals(2, path.getWaypointCount());
+  }
+
+  @Test
+  public void waypointFromCellIsTheNextTurnAlongThePath() {
+    TilePath path = createPath();
+    assertEquals(0, path.getWaypointFrom(mesh.getCellIndex(0, 0)));
+    assertEquals(0, path.getWaypointFrom(mesh.getCellIndex(2, 0)));
+    assertEquals(0, path.getWaypointFrom(mesh.getCellIndex(4, 0)));
+    assertEquals(1, path.getWaypointFrom(mesh.getCellIndex(4, 1)));
+    assertEquals(1, path.getWaypointFrom(mesh.getCellIndex(4, 2)));
+  }
+
+  @Test
+  public void waypointFromCellOffThePathIsMissing() {
+    assertEquals(-1, createPath().getWaypointFrom(mesh.getCellIndex(2, 2)));
+  }
+}